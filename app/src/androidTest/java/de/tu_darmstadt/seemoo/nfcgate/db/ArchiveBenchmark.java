@@ -0,0 +1,168 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogArchiver;
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+public class ArchiveBenchmark {
+    private static final String TAG = "ArchiveBenchmark";
+    private static final String DATABASE_NAME = "nfcgate-archive-benchmark";
+    private static final int ENTRIES = 100_000;
+    private static final int RUNS = 3;
+    // page sizes of the log viewer and the pcapng export
+    private static final int VIEW_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 512;
+
+    private Context mContext;
+    private AppDatabase mDatabase;
+    private long mSessionId;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+
+        // file backed with the app configuration to measure the real file size
+        mDatabase = AppDatabase.configure(Room.databaseBuilder(mContext, AppDatabase.class, DATABASE_NAME)).build();
+        mSessionId = mDatabase.sessionLogDao().insert(new SessionLog(new Date(), SessionLog.SessionType.CAPTURE));
+
+        // a capture from 100 days ago: READ RECORD commands and record responses ending in 9000
+        final long firstTimestamp = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(100);
+        long timestamp = firstTimestamp;
+        long cardBytes = 0, readerBytes = 0;
+        List<NfcCommEntry> batch = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            boolean card = i % 2 == 1;
+            byte[] data = card ? cardResponse(i) : readerCommand(i);
+            batch.add(new NfcCommEntry(new NfcComm(card, i == 0, data, timestamp), mSessionId));
+            timestamp += 3 + i % 7;
+
+            if (card)
+                cardBytes += data.length;
+            else
+                readerBytes += data.length;
+
+            if (batch.size() == 1000) {
+                mDatabase.nfcCommEntryDao().insert(batch);
+                batch.clear();
+            }
+        }
+        mDatabase.sessionLogDao().addSummary(mSessionId, ENTRIES, firstTimestamp, timestamp, cardBytes, readerBytes);
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    private static byte[] readerCommand(int i) {
+        return new byte[] { 0x00, (byte) 0xB2, (byte) (1 + i % 16), 0x0C, 0x00 };
+    }
+
+    private static byte[] cardResponse(int i) {
+        byte[] data = new byte[16 + i % 48];
+        for (int j = 0; j < data.length - 2; j++)
+            data[j] = (byte) (0x70 + (j * 31 + i / 32) % 24);
+        data[data.length - 2] = (byte) 0x90;
+        return data;
+    }
+
+    private long getFileSize() {
+        SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+        // move the WAL into the main file and release free pages before measuring
+        db.query("PRAGMA wal_checkpoint(TRUNCATE)").close();
+        db.execSQL("VACUUM");
+        return mContext.getDatabasePath(DATABASE_NAME).length();
+    }
+
+    private List<NfcCommEntry> readAll(int pageSize) {
+        SessionEntryReader reader = new SessionEntryReader(mDatabase, mSessionId);
+        List<NfcCommEntry> result = new ArrayList<>(ENTRIES);
+        List<NfcCommEntry> page;
+        int lastEntryId = 0;
+
+        while (!(page = reader.getPage(lastEntryId, pageSize)).isEmpty()) {
+            result.addAll(page);
+            lastEntryId = page.get(page.size() - 1).getEntryId();
+        }
+        return result;
+    }
+
+    /**
+     * @return Best of RUNS in microseconds for the first viewer page and the full export scan
+     */
+    private long[] measureReads() {
+        long firstPageUs = Long.MAX_VALUE, fullScanUs = Long.MAX_VALUE;
+
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            new SessionEntryReader(mDatabase, mSessionId).getPage(0, VIEW_PAGE_SIZE);
+            firstPageUs = Math.min(firstPageUs, (System.nanoTime() - start) / 1000);
+
+            start = System.nanoTime();
+            assertEquals(ENTRIES, readAll(EXPORT_PAGE_SIZE).size());
+            fullScanUs = Math.min(fullScanUs, (System.nanoTime() - start) / 1000);
+        }
+        return new long[] { firstPageUs, fullScanUs };
+    }
+
+    @Test
+    public void benchmarkArchive() {
+        long sizeBefore = getFileSize();
+        long[] readsBefore = measureReads();
+
+        long start = SystemClock.elapsedRealtime();
+        assertEquals(1, LogArchiver.archive(mDatabase, System.currentTimeMillis()));
+        long archiveMs = SystemClock.elapsedRealtime() - start;
+
+        long sizeAfter = getFileSize();
+        long[] readsAfter = measureReads();
+
+        Log.i(TAG, String.format("%d entries, archived in %d ms: size %d -> %d bytes (%.1f%%), " +
+                        "first page %d -> %d us, full scan %d -> %d us",
+                ENTRIES, archiveMs, sizeBefore, sizeAfter, 100.0 * sizeAfter / sizeBefore,
+                readsBefore[0], readsAfter[0], readsBefore[1], readsAfter[1]));
+        assertTrue(sizeAfter < sizeBefore);
+    }
+
+    @Test
+    public void archivedEntriesAreUnchanged() {
+        List<NfcCommEntry> before = readAll(EXPORT_PAGE_SIZE);
+        LogArchiver.archive(mDatabase, System.currentTimeMillis());
+        List<NfcCommEntry> after = readAll(EXPORT_PAGE_SIZE);
+        List<NfcCommEntry> joined = mDatabase.sessionLogJoinDao().get(mSessionId).getNfcCommEntries();
+
+        assertEquals(before.size(), after.size());
+        assertEquals(before.size(), joined.size());
+        for (int i = 0; i < before.size(); i++) {
+            NfcCommEntry expected = before.get(i);
+            for (NfcCommEntry actual : Arrays.asList(after.get(i), joined.get(i))) {
+                assertEquals(expected.getEntryId(), actual.getEntryId());
+                assertEquals(expected.isCard(), actual.isCard());
+                assertEquals(expected.isInitial(), actual.isInitial());
+                assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                assertArrayEquals(expected.getData(), actual.getData());
+            }
+        }
+    }
+}
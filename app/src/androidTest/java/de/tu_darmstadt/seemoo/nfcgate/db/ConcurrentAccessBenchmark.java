@@ -0,0 +1,94 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+public class ConcurrentAccessBenchmark {
+    private static final String TAG = "ConcurrentAccessBenchmark";
+    private static final String DATABASE_NAME = "nfcgate-benchmark";
+    private static final int ENTRIES = 50_000;
+    // same batch size as LogInserter
+    private static final int BATCH_SIZE = 256;
+    private static final int PAGE_SIZE = 100;
+
+    private Context mContext;
+    private AppDatabase mDatabase;
+    private long mSessionId;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(DATABASE_NAME);
+
+        // file backed with the app configuration, WAL needs a real file
+        mDatabase = AppDatabase.configure(Room.databaseBuilder(mContext, AppDatabase.class, DATABASE_NAME)).build();
+        mSessionId = mDatabase.sessionLogDao().insert(new SessionLog(new Date(), SessionLog.SessionType.CAPTURE));
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void benchmarkInsertWhileReading() throws InterruptedException {
+        final long[] insertMs = new long[1];
+
+        // writer: batched transactions like LogInserter
+        Thread writer = new Thread(() -> {
+            long start = SystemClock.elapsedRealtime();
+            List<NfcCommEntry> batch = new ArrayList<>(BATCH_SIZE);
+
+            for (int i = 0; i < ENTRIES; i++) {
+                batch.add(new NfcCommEntry(new NfcComm(i % 2 == 0, false, new byte[8 + i % 32], i), mSessionId));
+
+                if (batch.size() == BATCH_SIZE || i == ENTRIES - 1) {
+                    mDatabase.runInTransaction(() -> mDatabase.nfcCommEntryDao().insert(batch));
+                    batch.clear();
+                }
+            }
+
+            insertMs[0] = SystemClock.elapsedRealtime() - start;
+        });
+
+        // reader: first page of the session, as the log viewer loads it, until the writer is done
+        List<Long> readNs = new ArrayList<>();
+        writer.start();
+        while (writer.isAlive()) {
+            long start = System.nanoTime();
+            mDatabase.nfcCommEntryDao().getPage(mSessionId, 0, PAGE_SIZE);
+            readNs.add(System.nanoTime() - start);
+        }
+        writer.join();
+
+        assertEquals(ENTRIES, mDatabase.nfcCommEntryDao().getAfter(mSessionId, 0).size());
+        assertFalse(readNs.isEmpty());
+
+        long[] sorted = new long[readNs.size()];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = readNs.get(i);
+        Arrays.sort(sorted);
+
+        Log.i(TAG, String.format("%d entries inserted in %d ms (%d entries/s), %d reads: median %.2f ms, p99 %.2f ms, max %.2f ms",
+                ENTRIES, insertMs[0], ENTRIES * 1000L / Math.max(1, insertMs[0]), sorted.length,
+                sorted[sorted.length / 2] / 1e6, sorted[sorted.length * 99 / 100] / 1e6, sorted[sorted.length - 1] / 1e6));
+    }
+}
@@ -0,0 +1,96 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import static org.junit.Assert.*;
+
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+public class SessionLoadBenchmark {
+    private static final String TAG = "SessionLoadBenchmark";
+    private static final int ENTRIES = 100_000;
+    private static final int RUNS = 3;
+
+    private AppDatabase mDatabase;
+    private long mSessionId;
+
+    @Before
+    public void setUp() {
+        mDatabase = Room.inMemoryDatabaseBuilder(InstrumentationRegistry.getInstrumentation().getTargetContext(), AppDatabase.class)
+                .build();
+        mSessionId = mDatabase.sessionLogDao().insert(new SessionLog(new Date(), SessionLog.SessionType.CAPTURE));
+
+        // typical APDU sizes, alternating reader and card
+        List<NfcCommEntry> batch = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            batch.add(new NfcCommEntry(new NfcComm(i % 2 == 0, false, new byte[8 + i % 32], i), mSessionId));
+
+            if (batch.size() == 1000) {
+                mDatabase.nfcCommEntryDao().insert(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    /**
+     * Previous loading: join returning one session row per entry, then the relation query
+     */
+    private int loadJoin() {
+        int rows = 0;
+        try (Cursor cursor = mDatabase.query(new SimpleSQLiteQuery("SELECT id, date, type FROM SessionLog INNER JOIN NfcCommEntry ON SessionLog.id = NfcCommEntry.sessionId WHERE SessionLog.id = ? ORDER BY NfcCommEntry.entryId ASC",
+                new Object[]{mSessionId}))) {
+            while (cursor.moveToNext())
+                rows++;
+        }
+        // the relation query reads the same entries as the new ordered scan
+        mDatabase.sessionLogJoinDao().getEntries(mSessionId);
+        return rows;
+    }
+
+    @Test
+    public void benchmarkSessionLoad() {
+        long joinMs = Long.MAX_VALUE, splitMs = Long.MAX_VALUE;
+
+        for (int run = 0; run < RUNS; run++) {
+            long start = SystemClock.elapsedRealtime();
+            assertEquals(ENTRIES, loadJoin());
+            joinMs = Math.min(joinMs, SystemClock.elapsedRealtime() - start);
+
+            start = SystemClock.elapsedRealtime();
+            SessionLogJoin session = mDatabase.sessionLogJoinDao().get(mSessionId);
+            splitMs = Math.min(splitMs, SystemClock.elapsedRealtime() - start);
+
+            assertNotNull(session);
+            assertEquals(ENTRIES, session.getNfcCommEntries().size());
+        }
+
+        Log.i(TAG, String.format("%d entries: join %d ms, header + ordered scan %d ms", ENTRIES, joinMs, splitMs));
+    }
+
+    @Test
+    public void entriesAreOrdered() {
+        List<NfcCommEntry> entries = mDatabase.sessionLogJoinDao().getEntries(mSessionId);
+
+        for (int i = 1; i < entries.size(); i++)
+            assertTrue(entries.get(i - 1).getEntryId() < entries.get(i).getEntryId());
+    }
+}
@@ -1,30 +1,130 @@
 package de.tu_darmstadt.seemoo.nfcgate.db;
 
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import androidx.room.migration.Migration;
 import android.content.Context;
+import android.database.Cursor;
 import androidx.annotation.NonNull;
 
-@Database(entities = {TagInfo.class, SessionLog.class, NfcCommEntry.class}, version = 2, exportSchema = false)
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+@Database(entities = {TagInfo.class, SessionLog.class, NfcCommEntry.class, NfcCommSearch.class, NfcCommArchive.class, JournalOffset.class}, version = 10, exportSchema = false)
 @TypeConverters({Converters.class})
 public abstract class AppDatabase extends RoomDatabase {
     public abstract TagInfoDao tagInfoDao();
     public abstract SessionLogDao sessionLogDao();
     public abstract SessionLogJoinDao sessionLogJoinDao();
     public abstract NfcCommEntryDao nfcCommEntryDao();
+    public abstract NfcCommSearchDao nfcCommSearchDao();
+    public abstract NfcCommArchiveDao nfcCommArchiveDao();
+    public abstract JournalOffsetDao journalOffsetDao();
+
+    // rows processed per query when a migration has to rewrite existing rows
+    private static final int MIGRATION_CHUNK_SIZE = 1000;
 
-    private static AppDatabase mInstance;
+    // WAL pages after which a checkpoint is attempted, larger than the default 1000 for capture bursts
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 4000;
+    // size the WAL file is truncated to after a checkpoint
+    private static final long WAL_SIZE_LIMIT = 4 * 1024 * 1024;
+    // concurrent readers for LiveData and paging queries
+    private static final int QUERY_THREADS = 4;
+    // PRAGMA auto_vacuum value of INCREMENTAL
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    // databases up to this size are switched to incremental vacuum when opened, rebuilding them is instant
+    private static final long SMALL_DATABASE_PAGES = 64;
+
+    private static volatile AppDatabase mInstance;
 
     public static AppDatabase getDatabase(Context context) {
-        if (mInstance == null)
-            mInstance = Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, "nfcgate")
-                    .addMigrations(MIGRATION_1_2)
-                    .build();
-        return mInstance;
+        AppDatabase instance = mInstance;
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                instance = mInstance;
+                if (instance == null)
+                    mInstance = instance = configure(Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, "nfcgate"))
+                            .build();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Applies migrations, journal mode and executors used by the app database
+     */
+    public static RoomDatabase.Builder<AppDatabase> configure(RoomDatabase.Builder<AppDatabase> builder) {
+        return builder
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10)
+                .addCallback(CALLBACK)
+                // readers never wait for the writer
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(Executors.newFixedThreadPool(QUERY_THREADS, namedThreads("AppDatabase-query")))
+                .setTransactionExecutor(Executors.newSingleThreadExecutor(namedThreads("AppDatabase-transaction")));
+    }
+
+    /**
+     * Creates daemon threads with the given name, used for all background executors of the app
+     */
+    public static ThreadFactory namedThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            // triggers are not part of the entities
+            db.execSQL(NfcCommSearch.DELETE_TRIGGER);
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            // with WAL, NORMAL only syncs on checkpoints and stays durable against app crashes
+            db.execSQL("PRAGMA synchronous = NORMAL");
+
+            // these pragmas return a row, so they have to be run as queries
+            db.query("PRAGMA wal_autocheckpoint = " + WAL_AUTOCHECKPOINT_PAGES).close();
+            db.query("PRAGMA journal_size_limit = " + WAL_SIZE_LIMIT).close();
+
+            // the vacuum mode can only be set before tables exist or with a rebuild, which only new databases get for free
+            if (!isIncrementalVacuum(db) && queryLong(db, "PRAGMA page_count") <= SMALL_DATABASE_PAGES)
+                enableIncrementalVacuum(db);
+        }
+    };
+
+    /**
+     * @return True if deleted pages can be released with PRAGMA incremental_vacuum
+     */
+    public static boolean isIncrementalVacuum(SupportSQLiteDatabase db) {
+        return queryLong(db, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL;
+    }
+
+    /**
+     * Switches the database to incremental vacuum with one full rebuild.
+     * Blocks all other writers and needs free space for a copy of the database, must not run in a transaction.
+     */
+    public static void enableIncrementalVacuum(SupportSQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.execSQL("VACUUM");
+    }
+
+    /**
+     * @return The first column of the first row, 0 if there is none
+     */
+    public static long queryLong(SupportSQLiteDatabase db, String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
     }
 
     private static final Migration MIGRATION_1_2 = new Migration(1, 2) {
@@ -33,4 +133,170 @@ public abstract class AppDatabase extends RoomDatabase {
             database.execSQL("ALTER TABLE SessionLog ADD COLUMN type INTEGER DEFAULT 0");
         }
     };
+
+    private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE NfcCommEntry ADD COLUMN isCard INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE NfcCommEntry ADD COLUMN isInitial INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE NfcCommEntry ADD COLUMN timestamp INTEGER NOT NULL DEFAULT 0");
+
+            // backfill metadata from the serialized NfcComm, one chunk of rows at a time
+            SupportSQLiteStatement update = database.compileStatement(
+                    "UPDATE NfcCommEntry SET isCard = ?, isInitial = ?, timestamp = ? WHERE entryId = ?");
+            long lastEntryId = 0;
+            int count;
+
+            do {
+                count = 0;
+                try (Cursor cursor = database.query("SELECT entryId, nfcComm FROM NfcCommEntry WHERE entryId > ? ORDER BY entryId LIMIT ?",
+                        new Object[]{lastEntryId, MIGRATION_CHUNK_SIZE})) {
+                    while (cursor.moveToNext()) {
+                        lastEntryId = cursor.getLong(0);
+                        count++;
+
+                        if (cursor.isNull(1))
+                            continue;
+
+                        NfcComm comm = new NfcComm(cursor.getBlob(1));
+                        update.bindLong(1, comm.isCard() ? 1 : 0);
+                        update.bindLong(2, comm.isInitial() ? 1 : 0);
+                        update.bindLong(3, comm.getTimestamp());
+                        update.bindLong(4, lastEntryId);
+                        update.executeUpdateDelete();
+                    }
+                }
+            } while (count == MIGRATION_CHUNK_SIZE);
+        }
+    };
+
+    private static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // index entries by session in entry order
+            database.execSQL("DROP INDEX IF EXISTS index_NfcCommEntry_sessionId");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_NfcCommEntry_sessionId_entryId ON NfcCommEntry (sessionId, entryId)");
+        }
+    };
+
+    private static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // replace the serialized NfcComm column with the raw payload
+            database.execSQL("CREATE TABLE NfcCommEntry_new (" +
+                    "entryId INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "sessionId INTEGER NOT NULL, " +
+                    "isCard INTEGER NOT NULL, " +
+                    "isInitial INTEGER NOT NULL, " +
+                    "timestamp INTEGER NOT NULL, " +
+                    "data BLOB NOT NULL, " +
+                    "FOREIGN KEY(sessionId) REFERENCES SessionLog(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+
+            // copy rows one chunk at a time, only the payload has to be decoded
+            SupportSQLiteStatement insert = database.compileStatement(
+                    "INSERT INTO NfcCommEntry_new (entryId, sessionId, isCard, isInitial, timestamp, data) VALUES (?, ?, ?, ?, ?, ?)");
+            long lastEntryId = 0;
+            int count;
+
+            do {
+                count = 0;
+                try (Cursor cursor = database.query("SELECT entryId, sessionId, isCard, isInitial, timestamp, nfcComm FROM NfcCommEntry WHERE entryId > ? ORDER BY entryId LIMIT ?",
+                        new Object[]{lastEntryId, MIGRATION_CHUNK_SIZE})) {
+                    while (cursor.moveToNext()) {
+                        lastEntryId = cursor.getLong(0);
+                        count++;
+
+                        insert.bindLong(1, lastEntryId);
+                        insert.bindLong(2, cursor.getLong(1));
+                        insert.bindLong(3, cursor.getLong(2));
+                        insert.bindLong(4, cursor.getLong(3));
+                        insert.bindLong(5, cursor.getLong(4));
+                        insert.bindBlob(6, cursor.isNull(5) ? new byte[0] : new NfcComm(cursor.getBlob(5)).getData());
+                        insert.executeInsert();
+                    }
+                }
+            } while (count == MIGRATION_CHUNK_SIZE);
+
+            database.execSQL("DROP TABLE NfcCommEntry");
+            database.execSQL("ALTER TABLE NfcCommEntry_new RENAME TO NfcCommEntry");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_NfcCommEntry_sessionId_entryId ON NfcCommEntry (sessionId, entryId)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_NfcCommEntry_sessionId_timestamp ON NfcCommEntry (sessionId, timestamp)");
+        }
+    };
+
+    private static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN frameCount INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN firstTimestamp INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN lastTimestamp INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN cardBytes INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN readerBytes INTEGER NOT NULL DEFAULT 0");
+
+            // backfill summaries of existing sessions, the session index keeps this one range scan per session
+            database.execSQL("UPDATE SessionLog SET " +
+                    "frameCount = (SELECT COUNT(*) FROM NfcCommEntry WHERE sessionId = SessionLog.id), " +
+                    "firstTimestamp = IFNULL((SELECT MIN(timestamp) FROM NfcCommEntry WHERE sessionId = SessionLog.id), 0), " +
+                    "lastTimestamp = IFNULL((SELECT MAX(timestamp) FROM NfcCommEntry WHERE sessionId = SessionLog.id), 0), " +
+                    "cardBytes = IFNULL((SELECT SUM(LENGTH(data)) FROM NfcCommEntry WHERE sessionId = SessionLog.id AND isCard = 1), 0), " +
+                    "readerBytes = IFNULL((SELECT SUM(LENGTH(data)) FROM NfcCommEntry WHERE sessionId = SessionLog.id AND isCard = 0), 0)");
+        }
+    };
+
+    private static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // existing payloads are indexed by MIGRATION_8_9
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS NfcCommSearch USING FTS4(hex TEXT NOT NULL)");
+            database.execSQL(NfcCommSearch.DELETE_TRIGGER);
+        }
+    };
+
+    private static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE SessionLog ADD COLUMN archived INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE TABLE IF NOT EXISTS NfcCommArchive (id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "sessionId INTEGER NOT NULL, firstEntryId INTEGER NOT NULL, lastEntryId INTEGER NOT NULL, count INTEGER NOT NULL, " +
+                    "rawSize INTEGER NOT NULL, data BLOB NOT NULL, " +
+                    "FOREIGN KEY(sessionId) REFERENCES SessionLog(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_NfcCommArchive_sessionId_firstEntryId ON NfcCommArchive (sessionId, firstEntryId)");
+        }
+    };
+
+    private static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            // rebuild the search index with n-gram tokens, dropping is faster than deleting every row
+            database.execSQL("DROP TABLE IF EXISTS NfcCommSearch");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS NfcCommSearch USING FTS4(hex TEXT NOT NULL)");
+
+            // index stored payloads, one chunk of rows at a time, archived entries are not searchable
+            SupportSQLiteStatement insert = database.compileStatement("INSERT INTO NfcCommSearch (rowid, hex) VALUES (?, ?)");
+            long lastEntryId = 0;
+            int count;
+
+            do {
+                count = 0;
+                try (Cursor cursor = database.query("SELECT entryId, data FROM NfcCommEntry WHERE entryId > ? ORDER BY entryId LIMIT ?",
+                        new Object[]{lastEntryId, MIGRATION_CHUNK_SIZE})) {
+                    while (cursor.moveToNext()) {
+                        lastEntryId = cursor.getLong(0);
+                        count++;
+
+                        insert.bindLong(1, lastEntryId);
+                        insert.bindString(2, NfcCommSearch.tokenize(cursor.getBlob(1)));
+                        insert.executeInsert();
+                    }
+                }
+            } while (count == MIGRATION_CHUNK_SIZE);
+        }
+    };
+
+    private static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS JournalOffset (segment TEXT NOT NULL, position INTEGER NOT NULL, PRIMARY KEY(segment))");
+        }
+    };
 }
@@ -0,0 +1,35 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Bytes of a capture journal segment already moved into the database.
+ * Updated in the same transaction as the entries, so an interrupted compaction resumes without duplicates.
+ */
+@Entity
+public class JournalOffset {
+    // file name of the segment
+    @PrimaryKey
+    @NonNull
+    private String segment;
+
+    @ColumnInfo
+    private long position;
+
+    public JournalOffset(@NonNull String segment, long position) {
+        this.segment = segment;
+        this.position = position;
+    }
+
+    @NonNull
+    public String getSegment() {
+        return segment;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,26 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface JournalOffsetDao {
+    /**
+     * Returns the committed position in the segment, or null if nothing was committed yet
+     */
+    @Query("SELECT position FROM JournalOffset WHERE segment = :segment")
+    Long get(String segment);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void set(JournalOffset offset);
+
+    @Query("DELETE FROM JournalOffset WHERE segment = :segment")
+    void delete(String segment);
+
+    @Query("SELECT segment FROM JournalOffset")
+    List<String> getSegments();
+}
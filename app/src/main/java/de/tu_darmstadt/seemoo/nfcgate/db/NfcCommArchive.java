@@ -0,0 +1,207 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed block of consecutive entries of one archived session.
+ * Raw layout: one header per entry (varint entry id delta, flags, zigzag varint timestamp delta, varint length),
+ * followed by all payloads. Grouping similar fields compresses better than storing entries one after another.
+ */
+@Entity(indices = {@Index({"sessionId", "firstEntryId"})},
+        foreignKeys = {
+                @ForeignKey(entity = SessionLog.class, parentColumns = "id", childColumns = "sessionId", onDelete = ForeignKey.CASCADE)
+        })
+public class NfcCommArchive {
+    private static final int FLAG_CARD = 1;
+    private static final int FLAG_INITIAL = 2;
+
+    @PrimaryKey(autoGenerate = true)
+    private int id;
+
+    @ColumnInfo
+    private long sessionId;
+
+    @ColumnInfo
+    private int firstEntryId;
+
+    @ColumnInfo
+    private int lastEntryId;
+
+    @ColumnInfo
+    private int count;
+
+    // size of the block before compression
+    @ColumnInfo
+    private int rawSize;
+
+    // deflated block
+    @ColumnInfo
+    @NonNull
+    private byte[] data;
+
+    public NfcCommArchive(int id, long sessionId, int firstEntryId, int lastEntryId, int count, int rawSize, @NonNull byte[] data) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.firstEntryId = firstEntryId;
+        this.lastEntryId = lastEntryId;
+        this.count = count;
+        this.rawSize = rawSize;
+        this.data = data;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public int getFirstEntryId() {
+        return firstEntryId;
+    }
+
+    public int getLastEntryId() {
+        return lastEntryId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getRawSize() {
+        return rawSize;
+    }
+
+    @NonNull
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Compresses the entries into one block, entries must belong to one session and be ordered by entry id
+     */
+    public static NfcCommArchive pack(List<NfcCommEntry> entries) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        int previousId = 0;
+        long previousTimestamp = 0;
+
+        for (NfcCommEntry entry : entries) {
+            writeVarint(raw, entry.getEntryId() - previousId);
+            raw.write((entry.isCard() ? FLAG_CARD : 0) | (entry.isInitial() ? FLAG_INITIAL : 0));
+            // timestamps are not guaranteed to increase
+            long delta = entry.getTimestamp() - previousTimestamp;
+            writeVarint(raw, (delta << 1) ^ (delta >> 63));
+            writeVarint(raw, entry.getData().length);
+
+            previousId = entry.getEntryId();
+            previousTimestamp = entry.getTimestamp();
+        }
+        for (NfcCommEntry entry : entries)
+            raw.write(entry.getData(), 0, entry.getData().length);
+
+        byte[] input = raw.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(input);
+        deflater.finish();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished())
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+
+        NfcCommEntry first = entries.get(0);
+        NfcCommEntry last = entries.get(entries.size() - 1);
+        return new NfcCommArchive(0, first.getSessionId(), first.getEntryId(), last.getEntryId(), entries.size(),
+                input.length, compressed.toByteArray());
+    }
+
+    /**
+     * Decompresses all entries of the block in order
+     */
+    public List<NfcCommEntry> unpack() {
+        byte[] raw = new byte[rawSize];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                // all input used up or a dictionary missing, no further progress possible
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += inflated;
+            }
+            if (length != raw.length)
+                throw new IllegalStateException("Truncated archive block " + id);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive block " + id, e);
+        } finally {
+            inflater.end();
+        }
+
+        // headers first, payloads start after the last header
+        int[] ids = new int[count];
+        int[] flags = new int[count];
+        long[] timestamps = new long[count];
+        int[] lengths = new int[count];
+        int[] position = { 0 };
+        int previousId = 0;
+        long previousTimestamp = 0;
+
+        for (int i = 0; i < count; i++) {
+            ids[i] = previousId += (int) readVarint(raw, position);
+            flags[i] = raw[position[0]++];
+            long zigzag = readVarint(raw, position);
+            timestamps[i] = previousTimestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+            lengths[i] = (int) readVarint(raw, position);
+        }
+
+        List<NfcCommEntry> entries = new ArrayList<>(count);
+        int offset = position[0];
+        for (int i = 0; i < count; i++) {
+            byte[] payload = new byte[lengths[i]];
+            System.arraycopy(raw, offset, payload, 0, payload.length);
+            offset += payload.length;
+
+            entries.add(new NfcCommEntry(ids[i], sessionId, (flags[i] & FLAG_CARD) != 0,
+                    (flags[i] & FLAG_INITIAL) != 0, timestamps[i], payload));
+        }
+        return entries;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] in, int[] position) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = in[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return result;
+    }
+}
@@ -0,0 +1,25 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface NfcCommArchiveDao {
+    @Insert
+    void insert(NfcCommArchive block);
+
+    /**
+     * Returns the first block of the session containing entries following the given entry id, or null
+     */
+    @Query("SELECT * FROM NfcCommArchive WHERE sessionId = :sessionId AND lastEntryId > :afterEntryId ORDER BY firstEntryId ASC LIMIT 1")
+    NfcCommArchive getBlockAfter(long sessionId, int afterEntryId);
+
+    /**
+     * Returns all blocks of the session in entry order
+     */
+    @Query("SELECT * FROM NfcCommArchive WHERE sessionId = :sessionId ORDER BY firstEntryId ASC")
+    List<NfcCommArchive> getBlocks(long sessionId);
+}
@@ -1,14 +1,18 @@
 package de.tu_darmstadt.seemoo.nfcgate.db;
 
+import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.google.protobuf.UnsafeByteOperations;
+
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
-@Entity(indices = {@Index("sessionId")},
+@Entity(indices = {@Index({"sessionId", "entryId"}), @Index({"sessionId", "timestamp"})},
         foreignKeys = {
                 @ForeignKey(entity = SessionLog.class, parentColumns = "id", childColumns = "sessionId", onDelete = ForeignKey.CASCADE)
         })
@@ -17,14 +21,40 @@ public class NfcCommEntry {
     private int entryId;
 
     @ColumnInfo
-    private NfcComm nfcComm;
+    private long sessionId;
+
+    // NfcComm split into plain columns, queryable without decoding
+    @ColumnInfo(name = "isCard")
+    private boolean card;
+
+    @ColumnInfo(name = "isInitial")
+    private boolean initial;
 
     @ColumnInfo
-    private long sessionId;
+    private long timestamp;
+
+    // raw payload bytes
+    @ColumnInfo
+    @NonNull
+    private byte[] data;
 
+    // assembled from the columns on first access
+    @Ignore
+    private NfcComm nfcComm;
+
+    public NfcCommEntry(int entryId, long sessionId, boolean card, boolean initial, long timestamp, @NonNull byte[] data) {
+        this.entryId = entryId;
+        this.sessionId = sessionId;
+        this.card = card;
+        this.initial = initial;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+
+    @Ignore
     public NfcCommEntry(NfcComm nfcComm, long sessionId) {
+        this(0, sessionId, nfcComm.isCard(), nfcComm.isInitial(), nfcComm.getTimestamp(), nfcComm.getData());
         this.nfcComm = nfcComm;
-        this.sessionId = sessionId;
     }
 
     public int getEntryId() {
@@ -36,13 +66,12 @@ public class NfcCommEntry {
     }
 
     public NfcComm getNfcComm() {
+        // entry data is never modified, so it can be shared without copying
+        if (nfcComm == null)
+            nfcComm = new NfcComm(card, initial, UnsafeByteOperations.unsafeWrap(data), timestamp);
         return nfcComm;
     }
 
-    public void setNfcComm(NfcComm nfcComm) {
-        this.nfcComm = nfcComm;
-    }
-
     public long getSessionId() {
         return sessionId;
     }
@@ -51,8 +80,45 @@ public class NfcCommEntry {
         this.sessionId = sessionId;
     }
 
+    public boolean isCard() {
+        return card;
+    }
+
+    public void setCard(boolean card) {
+        this.card = card;
+        this.nfcComm = null;
+    }
+
+    public boolean isInitial() {
+        return initial;
+    }
+
+    public void setInitial(boolean initial) {
+        this.initial = initial;
+        this.nfcComm = null;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        this.nfcComm = null;
+    }
+
+    @NonNull
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(@NonNull byte[] data) {
+        this.data = data;
+        this.nfcComm = null;
+    }
+
     @Override
     public String toString() {
-        return nfcComm.toString();
+        return getNfcComm().toString();
     }
 }
@@ -1,10 +1,49 @@
 package de.tu_darmstadt.seemoo.nfcgate.db;
 
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
 
 @Dao
 public interface NfcCommEntryDao {
     @Insert
     void insert(NfcCommEntry log);
+
+    @Insert
+    List<Long> insert(List<NfcCommEntry> logs);
+
+    /**
+     * Deletes at most limit entries of the session
+     *
+     * @return Number of deleted entries
+     */
+    @Query("DELETE FROM NfcCommEntry WHERE entryId IN (SELECT entryId FROM NfcCommEntry WHERE sessionId = :sessionId LIMIT :limit)")
+    int deleteChunk(long sessionId, int limit);
+
+    /**
+     * Deletes the entries of the session in the entry id range, bounds included
+     */
+    @Query("DELETE FROM NfcCommEntry WHERE sessionId = :sessionId AND entryId BETWEEN :firstEntryId AND :lastEntryId")
+    int deleteRange(long sessionId, int firstEntryId, int lastEntryId);
+
+    /**
+     * Returns at most limit entries of the session following the given entry id (keyset paging)
+     */
+    @Query("SELECT * FROM NfcCommEntry WHERE sessionId = :sessionId AND entryId > :afterEntryId ORDER BY entryId ASC LIMIT :limit")
+    List<NfcCommEntry> getPage(long sessionId, int afterEntryId, int limit);
+
+    /**
+     * Returns all entries of the session following the given entry id
+     */
+    @Query("SELECT * FROM NfcCommEntry WHERE sessionId = :sessionId AND entryId > :afterEntryId ORDER BY entryId ASC")
+    List<NfcCommEntry> getAfter(long sessionId, int afterEntryId);
+
+    /**
+     * Returns all entries of the session as a source for paged loading
+     */
+    @Query("SELECT * FROM NfcCommEntry WHERE sessionId = :sessionId ORDER BY entryId ASC")
+    PagingSource<Integer, NfcCommEntry> getPaged(long sessionId);
 }
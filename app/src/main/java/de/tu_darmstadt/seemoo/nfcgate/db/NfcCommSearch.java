@@ -0,0 +1,96 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+
+/**
+ * Full-text index over NfcCommEntry payloads, one row per entry with the same rowid as its entryId.
+ * Every payload byte starts one hex token of the following GRAM_SIZE bytes. Overlapping n-grams have far more
+ * distinct values than single bytes, so a phrase query only reads the short position lists of rare n-grams.
+ */
+@Fts4
+@Entity
+public class NfcCommSearch {
+    // rows are removed together with their entry by this trigger
+    public static final String DELETE_TRIGGER = "CREATE TRIGGER IF NOT EXISTS NfcCommSearch_delete " +
+            "AFTER DELETE ON NfcCommEntry BEGIN DELETE FROM NfcCommSearch WHERE rowid = OLD.entryId; END";
+
+    // bytes per token, shorter patterns are found with prefix queries
+    public static final int GRAM_SIZE = 3;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    @ColumnInfo
+    @NonNull
+    private String hex;
+
+    public NfcCommSearch(long rowId, @NonNull String hex) {
+        this.rowId = rowId;
+        this.hex = hex;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    @NonNull
+    public String getHex() {
+        return hex;
+    }
+
+    public void setHex(@NonNull String hex) {
+        this.hex = hex;
+    }
+
+    /**
+     * Formats a payload into the indexed token format, e.g. 00 A4 04 00 into "00A404 A40400 0400 00".
+     * Tokens of the last bytes are shorter, so short patterns also match at the end of a payload.
+     */
+    public static String tokenize(byte[] data) {
+        StringBuilder tokens = new StringBuilder(data.length * (GRAM_SIZE * 2 + 1));
+
+        for (int i = 0; i < data.length; i++) {
+            if (i > 0)
+                tokens.append(' ');
+            for (int j = i; j < Math.min(i + GRAM_SIZE, data.length); j++)
+                tokens.append(HEX[(data[j] >> 4) & 0xF]).append(HEX[data[j] & 0xF]);
+        }
+
+        return tokens.toString();
+    }
+
+    /**
+     * Converts a user entered byte pattern, e.g. "00 A4 04 00" or "00a40400", into a MATCH query.
+     * Patterns of at least GRAM_SIZE bytes become a phrase of their n-grams, shorter ones a prefix query.
+     *
+     * @return The MATCH query or null if the pattern is not a sequence of hex bytes
+     */
+    public static String toMatchQuery(String pattern) {
+        String hex = pattern.replaceAll("[\\s:]", "").toUpperCase();
+        if (hex.isEmpty() || hex.length() % 2 != 0 || !hex.matches("[0-9A-F]+"))
+            return null;
+
+        int length = hex.length() / 2;
+        if (length < GRAM_SIZE)
+            return hex + "*";
+
+        StringBuilder query = new StringBuilder("\"");
+        for (int i = 0; i + GRAM_SIZE <= length; i++) {
+            if (i > 0)
+                query.append(' ');
+            query.append(hex, i * 2, (i + GRAM_SIZE) * 2);
+        }
+
+        return query.append('"').toString();
+    }
+}
@@ -0,0 +1,12 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+
+import java.util.List;
+
+@Dao
+public interface NfcCommSearchDao {
+    @Insert
+    void insert(List<NfcCommSearch> rows);
+}
@@ -0,0 +1,42 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the entries of a session in order, whether they are archived or stored as rows.
+ * Archived entries always precede the stored ones. Must not be used on the UI thread.
+ */
+public class SessionEntryReader {
+    private final AppDatabase mDatabase;
+    private final long mSessionId;
+
+    public SessionEntryReader(AppDatabase database, long sessionId) {
+        mDatabase = database;
+        mSessionId = sessionId;
+    }
+
+    /**
+     * Returns the entries following the given entry id: the rest of the next archived block or
+     * at most limit stored entries. Empty after the last entry.
+     */
+    public List<NfcCommEntry> getPage(int afterEntryId, int limit) {
+        // rows first: a block archived in between holds the same entries, so either result is valid
+        List<NfcCommEntry> rows = mDatabase.nfcCommEntryDao().getPage(mSessionId, afterEntryId, limit);
+        NfcCommArchive block = mDatabase.nfcCommArchiveDao().getBlockAfter(mSessionId, afterEntryId);
+
+        if (block == null || (!rows.isEmpty() && rows.get(0).getEntryId() < block.getFirstEntryId()))
+            return rows;
+
+        List<NfcCommEntry> entries = block.unpack();
+        if (block.getFirstEntryId() > afterEntryId)
+            return entries;
+
+        // continue within the block
+        List<NfcCommEntry> remaining = new ArrayList<>(entries.size());
+        for (NfcCommEntry entry : entries)
+            if (entry.getEntryId() > afterEntryId)
+                remaining.add(entry);
+        return remaining;
+    }
+}
@@ -25,6 +25,26 @@ public class SessionLog {
     @ColumnInfo
     private SessionType type;
 
+    // summary of all entries, maintained by LogInserter
+    @ColumnInfo
+    private int frameCount;
+
+    @ColumnInfo
+    private long firstTimestamp;
+
+    @ColumnInfo
+    private long lastTimestamp;
+
+    @ColumnInfo
+    private long cardBytes;
+
+    @ColumnInfo
+    private long readerBytes;
+
+    // entries are packed into compressed NfcCommArchive blocks
+    @ColumnInfo
+    private boolean archived;
+
     public SessionLog(Date date, SessionType type) {
         this.date = date;
         this.type = type;
@@ -54,6 +74,61 @@ public class SessionLog {
         this.type = type;
     }
 
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public void setFrameCount(int frameCount) {
+        this.frameCount = frameCount;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public void setFirstTimestamp(long firstTimestamp) {
+        this.firstTimestamp = firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(long lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public long getCardBytes() {
+        return cardBytes;
+    }
+
+    public void setCardBytes(long cardBytes) {
+        this.cardBytes = cardBytes;
+    }
+
+    public long getReaderBytes() {
+        return readerBytes;
+    }
+
+    public void setReaderBytes(long readerBytes) {
+        this.readerBytes = readerBytes;
+    }
+
+    public boolean isArchived() {
+        return archived;
+    }
+
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    /**
+     * Time between the first and the last entry in milliseconds
+     */
+    public long getDuration() {
+        return frameCount > 0 ? lastTimestamp - firstTimestamp : 0;
+    }
+
     public static SimpleDateFormat isoDateFormatter() {
         return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
     }
@@ -13,9 +13,45 @@ public interface SessionLogDao {
     @Query("SELECT * FROM SessionLog ORDER BY Date DESC")
     LiveData<List<SessionLog>> getAll();
 
+    /**
+     * Returns all sessions with an entry containing the byte pattern, see NfcCommSearch.toMatchQuery
+     */
+    @Query("SELECT * FROM SessionLog WHERE id IN (SELECT sessionId FROM NfcCommEntry WHERE entryId IN " +
+            "(SELECT rowid FROM NfcCommSearch WHERE hex MATCH :query)) ORDER BY Date DESC")
+    LiveData<List<SessionLog>> search(String query);
+
+    @Query("SELECT * FROM SessionLog WHERE id = :id")
+    LiveData<SessionLog> get(long id);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM SessionLog WHERE id = :id)")
+    boolean exists(long id);
+
     @Insert
     long insert(SessionLog log);
 
     @Delete
     void delete(SessionLog log);
+
+    /**
+     * Returns the ids of all sessions with stored entries whose last entry is older than the given timestamp.
+     * Includes archived sessions whose archiving was interrupted.
+     */
+    @Query("SELECT id FROM SessionLog WHERE frameCount > 0 AND lastTimestamp < :before AND " +
+            "EXISTS (SELECT 1 FROM NfcCommEntry WHERE sessionId = SessionLog.id)")
+    List<Long> getArchivable(long before);
+
+    @Query("UPDATE SessionLog SET archived = 1 WHERE id = :id")
+    void setArchived(long id);
+
+    /**
+     * Adds a batch of new entries to the session summary
+     */
+    @Query("UPDATE SessionLog SET " +
+            "firstTimestamp = CASE WHEN frameCount = 0 THEN :firstTimestamp ELSE MIN(firstTimestamp, :firstTimestamp) END, " +
+            "lastTimestamp = CASE WHEN frameCount = 0 THEN :lastTimestamp ELSE MAX(lastTimestamp, :lastTimestamp) END, " +
+            "frameCount = frameCount + :frameCount, " +
+            "cardBytes = cardBytes + :cardBytes, " +
+            "readerBytes = readerBytes + :readerBytes " +
+            "WHERE id = :id")
+    void addSummary(long id, int frameCount, long firstTimestamp, long lastTimestamp, long cardBytes, long readerBytes);
 }
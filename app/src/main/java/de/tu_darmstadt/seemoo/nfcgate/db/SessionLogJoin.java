@@ -1,19 +1,15 @@
 package de.tu_darmstadt.seemoo.nfcgate.db;
 
-import androidx.room.Embedded;
-import androidx.room.Relation;
-
 import java.util.List;
 
 public class SessionLogJoin {
-    @Embedded
     private SessionLog sessionLog;
 
-    @Relation(parentColumn = "id", entityColumn = "sessionId")
     private List<NfcCommEntry> nfcCommEntries;
 
-    public SessionLogJoin(SessionLog sessionLog) {
+    public SessionLogJoin(SessionLog sessionLog, List<NfcCommEntry> nfcCommEntries) {
         this.sessionLog = sessionLog;
+        this.nfcCommEntries = nfcCommEntries;
     }
 
     public SessionLog getSessionLog() {
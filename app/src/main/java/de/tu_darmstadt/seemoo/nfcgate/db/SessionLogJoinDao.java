@@ -1,13 +1,39 @@
 package de.tu_darmstadt.seemoo.nfcgate.db;
 
-import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Query;
 import androidx.room.Transaction;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Dao
-public interface SessionLogJoinDao {
+public abstract class SessionLogJoinDao {
+    @Query("SELECT * FROM SessionLog WHERE id = :sessionId")
+    public abstract SessionLog getSessionLog(long sessionId);
+
+    // ordered scan of the (sessionId, entryId) index
+    @Query("SELECT * FROM NfcCommEntry WHERE sessionId = :sessionId ORDER BY entryId ASC")
+    public abstract List<NfcCommEntry> getEntries(long sessionId);
+
+    @Query("SELECT * FROM NfcCommArchive WHERE sessionId = :sessionId ORDER BY firstEntryId ASC")
+    public abstract List<NfcCommArchive> getArchive(long sessionId);
+
+    /**
+     * Loads the session header once and all its entries in order, archived entries first, or null if the session does not exist.
+     * Must not be called on the UI thread.
+     */
     @Transaction
-    @Query("SELECT id, date, type FROM SessionLog INNER JOIN NfcCommEntry ON SessionLog.id = NfcCommEntry.sessionId WHERE SessionLog.id=:sessionId ORDER BY NfcCommEntry.entryId ASC")
-    LiveData<SessionLogJoin> get(long sessionId);
+    public SessionLogJoin get(long sessionId) {
+        SessionLog sessionLog = getSessionLog(sessionId);
+        if (sessionLog == null)
+            return null;
+
+        List<NfcCommEntry> entries = new ArrayList<>(sessionLog.getFrameCount());
+        for (NfcCommArchive block : getArchive(sessionId))
+            entries.addAll(block.unpack());
+        entries.addAll(getEntries(sessionId));
+
+        return new SessionLogJoin(sessionLog, entries);
+    }
 }
@@ -0,0 +1,65 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.model;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import java.util.List;
+import java.util.Set;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+
+/**
+ * Emits only the entries of a session that were inserted since the last emission.
+ * The first emission contains all entries present at that time.
+ * Observers must append every emitted list, values are never repeated.
+ */
+public class NfcCommEntryFeed extends LiveData<List<NfcCommEntry>> {
+    private final AppDatabase mDatabase;
+    private final long mSessionId;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final InvalidationTracker.Observer mObserver = new InvalidationTracker.Observer("NfcCommEntry") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            loadNew();
+        }
+    };
+
+    // cursor: last entry id that was emitted
+    private int mLastEntryId = 0;
+
+    public NfcCommEntryFeed(AppDatabase database, long sessionId) {
+        mDatabase = database;
+        mSessionId = sessionId;
+    }
+
+    @Override
+    protected void onActive() {
+        mDatabase.getInvalidationTracker().addObserver(mObserver);
+        // catch up with entries inserted while inactive
+        loadNew();
+    }
+
+    @Override
+    protected void onInactive() {
+        mDatabase.getInvalidationTracker().removeObserver(mObserver);
+    }
+
+    private void loadNew() {
+        mDatabase.getQueryExecutor().execute(() -> {
+            // serialize queries so every delta continues exactly where the previous one ended
+            synchronized (this) {
+                final List<NfcCommEntry> entries = mDatabase.nfcCommEntryDao().getAfter(mSessionId, mLastEntryId);
+                if (entries.isEmpty())
+                    return;
+
+                mLastEntryId = entries.get(entries.size() - 1).getEntryId();
+                // deliver every delta in order, postValue would drop all but the latest
+                mHandler.post(() -> setValue(entries));
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagingSource;
+import androidx.paging.PagingState;
+
+import java.util.List;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionEntryReader;
+import kotlin.coroutines.Continuation;
+import kotlinx.coroutines.BuildersKt;
+import kotlinx.coroutines.CoroutineDispatcher;
+import kotlinx.coroutines.ExecutorsKt;
+
+/**
+ * Pages the entries of an archived session, decompressing one block per page.
+ * Keys are the entry id after which a page starts, pages are only appended.
+ */
+public class SessionEntryPagingSource extends PagingSource<Integer, NfcCommEntry> {
+    private final SessionEntryReader mReader;
+    private final CoroutineDispatcher mDispatcher;
+
+    public SessionEntryPagingSource(AppDatabase database, long sessionId) {
+        mReader = new SessionEntryReader(database, sessionId);
+        mDispatcher = ExecutorsKt.from(database.getQueryExecutor());
+    }
+
+    @Nullable
+    @Override
+    public Object load(@NonNull LoadParams<Integer> params, @NonNull Continuation<? super LoadResult<Integer, NfcCommEntry>> continuation) {
+        // load is a suspend function, run the blocking read on the query executor
+        return BuildersKt.withContext(mDispatcher, (scope, inner) -> loadPage(params), continuation);
+    }
+
+    private LoadResult<Integer, NfcCommEntry> loadPage(LoadParams<Integer> params) {
+        // entry ids are auto-generated starting at 1
+        int afterEntryId = params.getKey() != null ? params.getKey() : 0;
+
+        try {
+            List<NfcCommEntry> entries = mReader.getPage(afterEntryId, params.getLoadSize());
+            Integer nextKey = entries.isEmpty() ? null : entries.get(entries.size() - 1).getEntryId();
+            return new LoadResult.Page<>(entries, null, nextKey);
+        } catch (RuntimeException e) {
+            return new LoadResult.Error<>(e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Integer getRefreshKey(@NonNull PagingState<Integer, NfcCommEntry> state) {
+        // archived sessions do not change, a refresh starts over
+        return null;
+    }
+}
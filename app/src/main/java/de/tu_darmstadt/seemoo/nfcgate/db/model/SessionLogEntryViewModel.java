@@ -3,21 +3,73 @@ package de.tu_darmstadt.seemoo.nfcgate.db.model;
 import android.app.Application;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
 import androidx.annotation.NonNull;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLogJoin;
 
 public class SessionLogEntryViewModel extends AndroidViewModel {
-    private final LiveData<SessionLogJoin> mSession;
+    private static final int PAGE_SIZE = 100;
+
+    private final AppDatabase mDatabase;
+    private final long mSessionId;
+    private MutableLiveData<SessionLogJoin> mSession;
+    private final LiveData<SessionLog> mSessionLog;
+    private final LiveData<PagingData<NfcCommEntry>> mEntries;
 
     public SessionLogEntryViewModel(@NonNull Application application, long sessionid) {
         super(application);
 
-        mSession = AppDatabase.getDatabase(application).sessionLogJoinDao().get(sessionid);
+        final AppDatabase db = AppDatabase.getDatabase(application);
+        mDatabase = db;
+        mSessionId = sessionid;
+        mSessionLog = db.sessionLogDao().get(sessionid);
+
+        // entries are loaded page by page, pages survive configuration changes
+        LiveData<Boolean> archived = Transformations.distinctUntilChanged(
+                Transformations.map(mSessionLog, sessionLog -> sessionLog != null && sessionLog.isArchived()));
+        mEntries = Transformations.switchMap(archived, isArchived -> {
+            // archived sessions are decompressed block by block
+            Pager<Integer, NfcCommEntry> pager = new Pager<>(new PagingConfig(PAGE_SIZE), isArchived ?
+                    () -> new SessionEntryPagingSource(db, sessionid) :
+                    () -> db.nfcCommEntryDao().getPaged(sessionid));
+            return PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), ViewModelKt.getViewModelScope(this));
+        });
     }
 
+    /**
+     * Loads the session header and all entries once in the background, including archived entries
+     */
     public LiveData<SessionLogJoin> getSession() {
+        if (mSession == null) {
+            mSession = new MutableLiveData<>();
+            mDatabase.getQueryExecutor().execute(() ->
+                    mSession.postValue(mDatabase.sessionLogJoinDao().get(mSessionId)));
+        }
         return mSession;
     }
+
+    public LiveData<SessionLog> getSessionLog() {
+        return mSessionLog;
+    }
+
+    public LiveData<PagingData<NfcCommEntry>> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Returns a new feed emitting only newly inserted entries, starting with all current entries
+     */
+    public NfcCommEntryFeed newEntryFeed() {
+        return new NfcCommEntryFeed(mDatabase, mSessionId);
+    }
 }
@@ -3,23 +3,38 @@ package de.tu_darmstadt.seemoo.nfcgate.db.model;
 import android.app.Application;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.List;
 
 import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionLogDao;
 
 public class SessionLogViewModel extends AndroidViewModel {
+    // MATCH query restricting the sessions, null for all sessions
+    private final MutableLiveData<String> mSearchQuery = new MutableLiveData<>(null);
     private final LiveData<List<SessionLog>> mSessionLog;
 
     public SessionLogViewModel(@NonNull Application application) {
         super(application);
 
-        mSessionLog = AppDatabase.getDatabase(application).sessionLogDao().getAll();
+        final SessionLogDao dao = AppDatabase.getDatabase(application).sessionLogDao();
+        mSessionLog = Transformations.switchMap(mSearchQuery,
+                query -> query == null ? dao.getAll() : dao.search(query));
     }
 
     public LiveData<List<SessionLog>> getSessionLogs() {
         return mSessionLog;
     }
+
+    /**
+     * Only show sessions matching the query, see NfcCommSearch.toMatchQuery
+     */
+    public void setSearchQuery(@Nullable String query) {
+        mSearchQuery.setValue(query);
+    }
 }
@@ -1,10 +1,9 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.pcapng;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.base.PcapPacket;
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
@@ -13,6 +12,9 @@ public class ISO14443Packet extends PcapPacket {
     private static final byte DATA_PICC_TO_PCD_CRC_DROPPED = (byte) 0xFB;
     private static final byte DATA_PCD_TO_PICC_CRC_DROPPED = (byte) 0xFA;
 
+    // ISO 14443 header (4 bytes) + I_BLOCK PCB (1 byte)
+    private static final int HEADER_LEN = 5;
+
     private NfcComm mData;
 
     public ISO14443Packet() {
@@ -21,7 +23,17 @@ public class ISO14443Packet extends PcapPacket {
 
     public ISO14443Packet(NfcComm data) {
         // write mode
+        setData(data);
+    }
+
+    /**
+     * Replaces the packet content, allows reusing one packet for writing many frames
+     */
+    public ISO14443Packet setData(NfcComm data) {
         mData = data;
+        mInterfaceIndex = data.isInitial() ? 1 : 0;
+        mTimestamp = data.getTimestamp();
+        return this;
     }
 
     public NfcComm getData() {
@@ -56,31 +68,24 @@ public class ISO14443Packet extends PcapPacket {
     }
 
     @Override
-    public int write(DataOutputStream out) throws IOException {
-        // prepare payload
-        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-        try (final DataOutputStream packetOut = new DataOutputStream(byteOut)) {
-            final byte[] data = mData.getData();
-
-            // ISO 14443 header (4 bytes)
-            // version
-            packetOut.writeByte(0);
-            // event
-            packetOut.writeByte(mData.isCard() ? DATA_PICC_TO_PCD_CRC_DROPPED :
-                    DATA_PCD_TO_PICC_CRC_DROPPED);
-            // len (data len + 1 byte for I_BLOCK PCB)
-            packetOut.writeShort(data.length + 1);
-
-            // part of frame
-            // I_BLOCK PCB: 0000010
-            packetOut.writeByte(0x02);
-            // actual data
-            packetOut.write(data);
-        }
+    protected int getPayloadLength() {
+        return HEADER_LEN + mData.getDataLength();
+    }
 
-        mInterfaceIndex = mData.isInitial() ? 1 : 0;
-        mPayload = byteOut.toByteArray();
-        mTimestamp = mData.getTimestamp();
-        return super.write(out);
+    @Override
+    protected void writePayload(ByteBuffer out) {
+        // ISO 14443 header (4 bytes)
+        // version
+        out.put((byte) 0);
+        // event
+        out.put(mData.isCard() ? DATA_PICC_TO_PCD_CRC_DROPPED : DATA_PCD_TO_PICC_CRC_DROPPED);
+        // len (data len + 1 byte for I_BLOCK PCB)
+        out.putShort((short) (mData.getDataLength() + 1));
+
+        // part of frame
+        // I_BLOCK PCB: 0000010
+        out.put((byte) 0x02);
+        // actual data
+        mData.getDataString().copyTo(out);
     }
 }
@@ -0,0 +1,39 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.pcapng;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionEntryReader;
+
+/**
+ * Writes a stored session page by page straight from the database,
+ * so that the session is never held in memory as a whole. Archived sessions are decompressed block by block.
+ * Must not be written on the UI thread.
+ */
+public class ISO14443SessionStream extends ISO14443Stream {
+    private static final int PAGE_SIZE = 512;
+
+    private final SessionEntryReader mReader;
+
+    public ISO14443SessionStream(SessionEntryReader reader) {
+        mReader = reader;
+    }
+
+    @Override
+    protected void writePackets(DataOutputStream out) throws IOException {
+        // entry ids are auto-generated starting at 1
+        int lastEntryId = 0;
+        List<NfcCommEntry> page;
+
+        do {
+            page = mReader.getPage(lastEntryId, PAGE_SIZE);
+
+            for (NfcCommEntry entry : page) {
+                writeComm(out, entry.getNfcComm());
+                lastEntryId = entry.getEntryId();
+            }
+        } while (!page.isEmpty());
+    }
+}
@@ -1,6 +1,7 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.pcapng;
 
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -11,9 +12,16 @@ import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.base.PcapStream;
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
 public class ISO14443Stream extends PcapStream {
+    public interface NfcCommCallback {
+        void onNfcComm(NfcComm comm) throws IOException;
+    }
+
     // interface 0 is ISO14443, 1 is DLT_USER_0
     private final static short[] LINKTYPES = new short[] { 264, 147};
 
+    // packet reused for writing frames that are not appended to the stream
+    private final ISO14443Packet mWritePacket = new ISO14443Packet();
+
     public ISO14443Stream() {
         super(LINKTYPES);
     }
@@ -26,15 +34,25 @@ public class ISO14443Stream extends PcapStream {
     }
 
     public List<NfcComm> readAll(InputStream in) throws IOException {
-        super.read(in);
-
-        // convert packet list to NfcComm list
         List<NfcComm> result = new ArrayList<>();
-        for (PcapPacket packet : getPackets())
-            result.add(((ISO14443Packet) packet).getData());
+        readAll(in, result::add);
         return result;
     }
 
+    /**
+     * Passes every NfcComm to the callback as soon as its block is decoded
+     */
+    public void readAll(InputStream in, NfcCommCallback callback) throws IOException {
+        read(in, packet -> callback.onNfcComm(((ISO14443Packet) packet).getData()));
+    }
+
+    /**
+     * Writes a single frame without creating a packet for it
+     */
+    protected void writeComm(DataOutputStream out, NfcComm comm) throws IOException {
+        writePacket(out, mWritePacket.setData(comm));
+    }
+
     @Override
     protected PcapPacket readPacket(DataInputStream in) throws IOException {
         return new ISO14443Packet().read(in);
@@ -1,8 +1,9 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.pcapng.base;
 
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class PcapPacket {
     protected static final int BLOCK_TYPE_EPB = 6;
@@ -19,7 +20,7 @@ public class PcapPacket {
     public PcapPacket read(DataInputStream in) throws IOException {
         // Enhanced Packet Block
         // block type
-        in.skipBytes(4);
+        skipFully(in, 4);
         // block length with padding
         int blockLength = in.readInt();
         // interface index
@@ -28,15 +29,15 @@ public class PcapPacket {
         int timestampHigh = in.readInt();
         int timestampLow = in.readInt();
         // packet length (original + actual)
-        in.skipBytes(4);
+        skipFully(in, 4);
         int packetLength = in.readInt();
         // payload
         mPayload = new byte[packetLength];
-        in.read(mPayload, 0, packetLength);
+        in.readFully(mPayload, 0, packetLength);
         // padding
-        in.skipBytes(blockLength - packetLength - BLOCK_LEN_EPB);
+        skipFully(in, blockLength - packetLength - BLOCK_LEN_EPB);
         // block length
-        in.skipBytes(4);
+        skipFully(in, 4);
 
         // timestamp from microseconds in millis
         mTimestamp = ((long) timestampHigh << 32 | timestampLow & 0xFFFFFFFFL) / 1000;
@@ -44,34 +45,72 @@ public class PcapPacket {
         return this;
     }
 
-    public int write(DataOutputStream out) throws IOException {
+    /**
+     * Length of the packet data in bytes
+     */
+    protected int getPayloadLength() {
+        return mPayload.length;
+    }
+
+    /**
+     * Puts the packet data into the buffer
+     */
+    protected void writePayload(ByteBuffer out) {
+        out.put(mPayload);
+    }
+
+    /**
+     * Total length of the encoded block, including packet data padded to 4 bytes
+     */
+    public int getBlockLength() {
+        return BLOCK_LEN_EPB + ((getPayloadLength() + 3) & ~3);
+    }
+
+    /**
+     * Encodes the block into the buffer, which must have at least getBlockLength() bytes remaining
+     */
+    public int write(ByteBuffer out) {
         // prepare timestamp from millis in microseconds
         final long usecs = mTimestamp * 1000;
         final int timestampHigh = (int) (usecs >> 32);
         final int timestampLow = (int) usecs;
         // prepare length + pad to 4 bytes
-        final byte[] blockPadding = new byte[(4 - (mPayload.length % 4)) % 4];
-        final int blockLength = BLOCK_LEN_EPB + mPayload.length + blockPadding.length;
+        final int payloadLength = getPayloadLength();
+        final int blockLength = getBlockLength();
 
         // Enhanced Packet Block
         // block type
-        out.writeInt(BLOCK_TYPE_EPB);
+        out.putInt(BLOCK_TYPE_EPB);
         // total block length
-        out.writeInt(blockLength);
+        out.putInt(blockLength);
         // interface index
-        out.writeInt(mInterfaceIndex);
+        out.putInt(mInterfaceIndex);
         // timestamp
-        out.writeInt(timestampHigh);
-        out.writeInt(timestampLow);
+        out.putInt(timestampHigh);
+        out.putInt(timestampLow);
         // packet length (original + actual)
-        out.writeInt(mPayload.length);
-        out.writeInt(mPayload.length);
+        out.putInt(payloadLength);
+        out.putInt(payloadLength);
         // data + padding
-        out.write(mPayload);
-        out.write(blockPadding);
+        writePayload(out);
+        for (int i = payloadLength; i < blockLength - BLOCK_LEN_EPB; i++)
+            out.put((byte) 0);
         // total block length
-        out.writeInt(blockLength);
+        out.putInt(blockLength);
 
         return blockLength;
     }
+
+    /**
+     * Skips exactly n bytes, unlike skipBytes which may skip less on buffered input
+     */
+    protected static void skipFully(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0)
+                throw new EOFException();
+
+            n -= skipped;
+        }
+    }
 }
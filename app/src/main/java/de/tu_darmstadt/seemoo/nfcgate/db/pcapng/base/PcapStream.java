@@ -1,16 +1,23 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.pcapng.base;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.ContentShare;
 
 public class PcapStream implements ContentShare.IFileShareable {
+    public interface PacketCallback {
+        void onPacket(PcapPacket packet) throws IOException;
+    }
+
     private static final int BLOCK_TYPE_SECTION = 0x0A0D0D0A;
     private static final int BLOCK_LEN_SECTION = 4*7;
     private static final int BLOCK_TYPE_INTERFACE = 0x00000001;
@@ -19,6 +26,8 @@ public class PcapStream implements ContentShare.IFileShareable {
 
     private final List<PcapPacket> mPackets = new ArrayList<>();
     private final short[] mLinkTypes;
+    // encoding buffer reused for every block, grows with the largest block
+    private ByteBuffer mBuffer = ByteBuffer.allocate(1024);
 
     public PcapStream(short[] linkType) {
         mLinkTypes = linkType;
@@ -33,8 +42,41 @@ public class PcapStream implements ContentShare.IFileShareable {
     }
 
     public void read(InputStream stream) throws IOException {
-        DataInputStream in = new DataInputStream(stream);
+        read(stream, mPackets::add);
+    }
 
+    /**
+     * Decodes one packet at a time and passes it to the callback until the end of the stream,
+     * without collecting the packets in memory
+     */
+    public void read(InputStream stream, PacketCallback callback) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            readHeader(in);
+
+            // read blocks until end of file
+            while (true) {
+                // peek block type and length
+                in.mark(8);
+                if (in.read() == -1)
+                    break;
+                in.reset();
+                int blockType = in.readInt();
+                int blockLength = in.readInt();
+                in.reset();
+
+                if (blockLength < 12)
+                    throw new IOException(String.format("Pcap format error. block len: %d", blockLength));
+
+                // decode packets, skip any other blocks (e.g. statistics)
+                if (blockType == PcapPacket.BLOCK_TYPE_EPB)
+                    callback.onPacket(readPacket(in));
+                else
+                    PcapPacket.skipFully(in, blockLength);
+            }
+        }
+    }
+
+    private void readHeader(DataInputStream in) throws IOException {
         // Section Header Block
         assertEq("block type", BLOCK_TYPE_SECTION, in.readInt());
         assertEq("block len", BLOCK_LEN_SECTION, in.readInt());
@@ -42,7 +84,7 @@ public class PcapStream implements ContentShare.IFileShareable {
         assertEq("version (major)", 1, in.readShort());
         assertEq("version (minor)", 0, in.readShort());
         // ignore section length
-        in.skipBytes(8);
+        PcapPacket.skipFully(in, 8);
         assertEq("block len", BLOCK_LEN_SECTION, in.readInt());
 
         // Interface Description Blocks
@@ -51,16 +93,11 @@ public class PcapStream implements ContentShare.IFileShareable {
             assertEq("block len", BLOCK_LEN_INTERFACE, in.readInt());
             assertEq("block len", linkType, in.readShort());
             // ignore reserved
-            in.skipBytes(2);
+            PcapPacket.skipFully(in, 2);
             // ignore snaplen
-            in.skipBytes(4);
+            PcapPacket.skipFully(in, 4);
             assertEq("block len", BLOCK_LEN_INTERFACE, in.readInt());
         }
-
-        while (in.available() > 0)
-            mPackets.add(readPacket(in));
-
-        in.close();
     }
 
     protected PcapPacket readPacket(DataInputStream in) throws IOException {
@@ -74,7 +111,7 @@ public class PcapStream implements ContentShare.IFileShareable {
 
     @Override
     public void write(OutputStream stream) throws IOException {
-        DataOutputStream out = new DataOutputStream(stream);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
 
         // Section Header Block
         // block type
@@ -108,9 +145,29 @@ public class PcapStream implements ContentShare.IFileShareable {
         }
 
         // write packets
-        for (PcapPacket packet : mPackets)
-            packet.write(out);
+        writePackets(out);
 
         out.close();
     }
+
+    /**
+     * Writes all Enhanced Packet Blocks following the stream header
+     */
+    protected void writePackets(DataOutputStream out) throws IOException {
+        for (PcapPacket packet : mPackets)
+            writePacket(out, packet);
+    }
+
+    /**
+     * Encodes the packet into the reusable buffer and writes the block
+     */
+    protected void writePacket(DataOutputStream out, PcapPacket packet) throws IOException {
+        final int blockLength = packet.getBlockLength();
+        if (mBuffer.capacity() < blockLength)
+            mBuffer = ByteBuffer.allocate(Integer.highestOneBit(blockLength) << 1);
+
+        mBuffer.clear();
+        packet.write(mBuffer);
+        out.write(mBuffer.array(), 0, mBuffer.position());
+    }
 }
@@ -0,0 +1,365 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.JournalOffset;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+
+/**
+ * Append-only capture store in front of the database.
+ * Entries are appended to per-session segment files, sealed segments are moved into the database
+ * in large transactions by a background thread. Capture never waits for SQLite.
+ * The committed position of each segment is stored with its entries, segments are only deleted once fully moved.
+ */
+final class CaptureJournal {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // segments are sealed at this size or age, the age bounds the delay until entries are visible
+    private static final long SEGMENT_MAX_BYTES = 1024 * 1024;
+    private static final long SEGMENT_MAX_AGE_MS = 1000;
+    // entries per transaction when moving a segment into the database
+    private static final int COMPACT_BATCH_SIZE = 2000;
+    // delay before a failed compaction is retried, e.g. while the disk is full
+    private static final long RETRY_DELAY_MS = 10000;
+    // record header: int length, byte flags, long timestamp
+    private static final int RECORD_HEADER_BYTES = 13;
+    private static final int FLAG_CARD = 1;
+    private static final int FLAG_INITIAL = 2;
+
+    // seals segments by age and compacts them, in the order they were sealed
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(AppDatabase.namedThreads("CaptureJournal"));
+
+    private final AppDatabase mDatabase;
+    private final File mDirectory;
+    private final Set<Segment> mOpen = new HashSet<>();
+    private long mNextSequence = 0;
+    /**
+     * Moves entries into the database, queued in the order the entries were captured
+     */
+    private interface Compaction {
+        /**
+         * @return False to retry later
+         */
+        boolean run();
+    }
+
+    // sealed segments and direct writes in order, only accessed by the executor
+    private final ArrayDeque<Compaction> mSealed = new ArrayDeque<>();
+    private boolean mRetryScheduled = false;
+
+    CaptureJournal(AppDatabase database, File directory) {
+        mDatabase = database;
+        mDirectory = directory;
+        mDirectory.mkdirs();
+        recover();
+    }
+
+    /**
+     * Creates a new segment for entries of the session
+     */
+    Segment open(long sessionId) throws IOException {
+        Segment segment;
+        synchronized (mOpen) {
+            // sequence first, so file names sort in write order
+            segment = new Segment(new File(mDirectory, String.format("%019d-%d%s", mNextSequence++, sessionId, SEGMENT_SUFFIX)));
+            mOpen.add(segment);
+        }
+
+        mExecutor.schedule(segment::seal, SEGMENT_MAX_AGE_MS, TimeUnit.MILLISECONDS);
+        return segment;
+    }
+
+    /**
+     * Seals all open segments and waits until everything is moved into the database
+     */
+    void sync() throws InterruptedException {
+        List<Segment> open;
+        synchronized (mOpen) {
+            open = new ArrayList<>(mOpen);
+        }
+        for (Segment segment : open)
+            segment.seal();
+
+        // compactions run in order, so this runs after all of them unless one waits for a retry
+        CountDownLatch latch = new CountDownLatch(1);
+        mExecutor.execute(latch::countDown);
+        latch.await();
+    }
+
+    /**
+     * Compacts segments left over from a previous process
+     */
+    private void recover() {
+        File[] files = mDirectory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null)
+            files = new File[0];
+
+        Arrays.sort(files);
+        final List<String> names = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                mNextSequence = Math.max(mNextSequence, Long.parseLong(name.substring(0, name.indexOf('-'))) + 1);
+                getSessionId(file);
+                names.add(name);
+                enqueue(() -> compact(file, Long.MAX_VALUE));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                file.delete();
+            }
+        }
+
+        // positions of segments deleted right before the process ended
+        mExecutor.execute(() -> {
+            try {
+                for (String segment : mDatabase.journalOffsetDao().getSegments())
+                    if (!names.contains(segment))
+                        mDatabase.journalOffsetDao().delete(segment);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private static long getSessionId(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Writes entries that could not be journaled once all segments sealed before are compacted, keeping their order
+     */
+    void writeDirect(List<NfcCommEntry> entries) {
+        final List<NfcCommEntry> batch = new ArrayList<>(entries);
+
+        enqueue(() -> {
+            try {
+                EntryWriter.write(mDatabase, batch);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return sessionDeleted(batch.get(0).getSessionId());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Queues a compaction after all compactions queued before it
+     */
+    private void enqueue(Compaction compaction) {
+        mExecutor.execute(() -> {
+            mSealed.add(compaction);
+            compactSealed();
+        });
+    }
+
+    /**
+     * Compacts queued segments in order, stops at a failing one and retries it later
+     */
+    private void compactSealed() {
+        // a failed segment blocks the ones after it, so entries of a session stay in order
+        if (mRetryScheduled)
+            return;
+
+        while (!mSealed.isEmpty()) {
+            if (!mSealed.peek().run()) {
+                mRetryScheduled = true;
+                mExecutor.schedule(() -> {
+                    mRetryScheduled = false;
+                    compactSealed();
+                }, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            mSealed.poll();
+        }
+    }
+
+    /**
+     * Moves the entries of the segment after its committed position into the database and deletes it
+     *
+     * @param limit Length of the valid part of the segment
+     * @return False if the segment is kept to retry later
+     */
+    private boolean compact(File file, long limit) {
+        final String name = file.getName();
+        final long sessionId = getSessionId(file);
+        final List<NfcCommEntry> batch = new ArrayList<>(COMPACT_BATCH_SIZE);
+
+        try {
+            Long committed = mDatabase.journalOffsetDao().get(name);
+            long position = committed != null ? committed : 0;
+
+            try (FileInputStream stream = new FileInputStream(file)) {
+                // continue after the entries already in the database
+                stream.getChannel().position(position);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+
+                while (position < limit) {
+                    // record: int length, byte flags, long timestamp, data
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+
+                    int flags = in.readByte();
+                    long timestamp = in.readLong();
+                    byte[] data = new byte[length];
+                    in.readFully(data);
+                    position += RECORD_HEADER_BYTES + length;
+
+                    batch.add(new NfcCommEntry(0, sessionId, (flags & FLAG_CARD) != 0, (flags & FLAG_INITIAL) != 0, timestamp, data));
+                    if (batch.size() >= COMPACT_BATCH_SIZE)
+                        writeBatch(name, batch, position);
+                }
+            } catch (EOFException e) {
+                // record truncated by a crash, keep everything before it
+            }
+
+            writeBatch(name, batch, position);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+
+            // entries of a deleted session have nowhere to go
+            if (!sessionDeleted(sessionId))
+                return false;
+        }
+
+        // the position is removed last, a crash in between only leaves a stale row that is cleaned up on start
+        file.delete();
+        try {
+            mDatabase.journalOffsetDao().delete(name);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        return true;
+    }
+
+    /**
+     * Writes the entries and the segment position after them in one transaction and clears the batch
+     */
+    private void writeBatch(String name, List<NfcCommEntry> batch, long position) {
+        EntryWriter.write(mDatabase, batch, () -> mDatabase.journalOffsetDao().set(new JournalOffset(name, position)));
+        batch.clear();
+    }
+
+    private boolean sessionDeleted(long sessionId) {
+        try {
+            return !mDatabase.sessionLogDao().exists(sessionId);
+        } catch (RuntimeException e) {
+            // the database is not usable, try again later
+            return false;
+        }
+    }
+
+    /**
+     * Segment file receiving the entries of one session
+     */
+    class Segment {
+        private final File mFile;
+        private FileOutputStream mFileOut;
+        private DataOutputStream mOut;
+        // bytes of completely appended batches
+        private long mLength = 0;
+
+        private Segment(File file) throws IOException {
+            mFile = file;
+            mFileOut = new FileOutputStream(file);
+            mOut = new DataOutputStream(new BufferedOutputStream(mFileOut));
+        }
+
+        /**
+         * Appends all entries, seals the segment once it is full.
+         * If appending fails, the segment is cut back to its length before the batch and sealed.
+         *
+         * @return False if the segment was already sealed and nothing was written
+         */
+        synchronized boolean append(List<NfcCommEntry> entries) throws IOException {
+            if (mOut == null)
+                return false;
+
+            try {
+                for (NfcCommEntry entry : entries) {
+                    mOut.writeInt(entry.getData().length);
+                    mOut.writeByte((entry.isCard() ? FLAG_CARD : 0) | (entry.isInitial() ? FLAG_INITIAL : 0));
+                    mOut.writeLong(entry.getTimestamp());
+                    mOut.write(entry.getData());
+                }
+
+                // make entries survive a crash of the app
+                mOut.flush();
+            } catch (IOException e) {
+                // the caller writes the whole batch elsewhere, none of it may stay in the segment
+                sealAfterFailure();
+                throw e;
+            }
+
+            mLength = mOut.size();
+            if (mLength >= SEGMENT_MAX_BYTES)
+                seal();
+
+            return true;
+        }
+
+        /**
+         * Closes the segment and queues it for compaction, does nothing if already sealed
+         */
+        synchronized void seal() {
+            if (mOut == null)
+                return;
+
+            try {
+                mOut.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            close(Long.MAX_VALUE);
+        }
+
+        private void sealAfterFailure() {
+            try {
+                mFileOut.getChannel().truncate(mLength);
+            } catch (IOException e) {
+                // compaction stops at the valid length instead
+                e.printStackTrace();
+            }
+
+            // close without flushing the buffered rest of the batch
+            try {
+                mFileOut.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            close(mLength);
+        }
+
+        private void close(long limit) {
+            mOut = null;
+            mFileOut = null;
+
+            synchronized (mOpen) {
+                mOpen.remove(this);
+            }
+            enqueue(() -> compact(mFile, limit));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommSearch;
+
+/**
+ * Writes batches of entries together with their session summary and search index rows
+ */
+final class EntryWriter {
+    private EntryWriter() { }
+
+    /**
+     * Inserts all entries and updates the session summary in a single transaction.
+     * All entries of a batch belong to the same session.
+     */
+    static void write(AppDatabase database, List<NfcCommEntry> batch) {
+        write(database, batch, null);
+    }
+
+    /**
+     * Like write, the action runs in the same transaction after the entries are written
+     */
+    static void write(AppDatabase database, List<NfcCommEntry> batch, Runnable inTransaction) {
+        if (batch.isEmpty())
+            return;
+
+        long firstTimestamp = Long.MAX_VALUE, lastTimestamp = Long.MIN_VALUE;
+        long cardBytes = 0, readerBytes = 0;
+        for (NfcCommEntry entry : batch) {
+            firstTimestamp = Math.min(firstTimestamp, entry.getTimestamp());
+            lastTimestamp = Math.max(lastTimestamp, entry.getTimestamp());
+
+            if (entry.isCard())
+                cardBytes += entry.getData().length;
+            else
+                readerBytes += entry.getData().length;
+        }
+
+        final long sessionId = batch.get(0).getSessionId();
+        final int frameCount = batch.size();
+        final long first = firstTimestamp, last = lastTimestamp, card = cardBytes, reader = readerBytes;
+        database.runInTransaction(() -> {
+            List<Long> entryIds = database.nfcCommEntryDao().insert(batch);
+            database.sessionLogDao().addSummary(sessionId, frameCount, first, last, card, reader);
+
+            // index payloads for byte pattern search
+            List<NfcCommSearch> search = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++)
+                search.add(new NfcCommSearch(entryIds.get(i), NfcCommSearch.tokenize(batch.get(i).getData())));
+            database.nfcCommSearchDao().insert(search);
+
+            if (inTransaction != null)
+                inTransaction.run();
+        });
+    }
+}
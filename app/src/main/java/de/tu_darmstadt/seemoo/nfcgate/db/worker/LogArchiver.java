@@ -0,0 +1,97 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import android.content.Context;
+
+import android.util.Log;
+
+import androidx.preference.PreferenceManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommArchive;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+
+/**
+ * Packs the entries of old sessions into compressed NfcCommArchive blocks on a background thread.
+ * Archived entries are still shown and exported, but no longer found by the byte pattern search.
+ */
+public class LogArchiver {
+    private static final String TAG = "LogArchiver";
+    // entries per compressed block, also the page size when viewing an archived session
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final ExecutorService mExecutor = Executors.newSingleThreadExecutor(AppDatabase.namedThreads("LogArchiver"));
+
+    private final Context mContext;
+    private final AppDatabase mDatabase;
+
+    public LogArchiver(Context context) {
+        mContext = context.getApplicationContext();
+        mDatabase = AppDatabase.getDatabase(context);
+    }
+
+    /**
+     * Archives sessions older than the configured age in the background, does nothing if archiving is disabled
+     */
+    public void archiveOld() {
+        final int days = Integer.parseInt(PreferenceManager.getDefaultSharedPreferences(mContext).getString("archive_age", "0"));
+        if (days <= 0)
+            return;
+
+        final long before = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+        mExecutor.execute(() -> {
+            // runs on every start, a failure must not crash the app
+            try {
+                if (archive(mDatabase, before) > 0)
+                    LogDeleter.compact(mDatabase);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error archiving sessions", e);
+            }
+        });
+    }
+
+    /**
+     * Archives all sessions whose last entry is older than the given timestamp.
+     * A session that fails is skipped and retried in the next run. Must not be called on the UI thread.
+     *
+     * @return Number of archived sessions
+     */
+    public static int archive(AppDatabase database, long before) {
+        int archived = 0;
+
+        for (long sessionId : database.sessionLogDao().getArchivable(before)) {
+            try {
+                archiveSession(database, sessionId);
+                archived++;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error archiving session " + sessionId, e);
+            }
+        }
+
+        return archived;
+    }
+
+    private static void archiveSession(AppDatabase database, long sessionId) {
+        // readers switch to SessionEntryReader first, it reads sessions partially moved into blocks
+        database.sessionLogDao().setArchived(sessionId);
+
+        // an interrupted run continues with the remaining rows
+        List<NfcCommEntry> block;
+        do {
+            block = database.nfcCommEntryDao().getPage(sessionId, 0, BLOCK_SIZE);
+            if (block.isEmpty())
+                break;
+
+            // each block is its own transaction, readers see either the rows or the block
+            final NfcCommArchive archive = NfcCommArchive.pack(block);
+            database.runInTransaction(() -> {
+                database.nfcCommArchiveDao().insert(archive);
+                database.nfcCommEntryDao().deleteRange(sessionId, archive.getFirstEntryId(), archive.getLastEntryId());
+            });
+        } while (block.size() == BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,122 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.StringRes;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.tu_darmstadt.seemoo.nfcgate.R;
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
+
+/**
+ * Deletes sessions on a single background thread.
+ * Entries are removed in bounded transactions, so concurrent inserts and reads are never blocked for long.
+ */
+public class LogDeleter {
+    private static final String TAG = "LogDeleter";
+    // entries deleted per transaction
+    private static final int CHUNK_SIZE = 2000;
+    // free pages released per incremental vacuum step, each step is its own short transaction
+    private static final int VACUUM_STEP_PAGES = 256;
+
+    // one thread for all deletions, requests are processed in order
+    private static final ExecutorService mExecutor = Executors.newSingleThreadExecutor(AppDatabase.namedThreads("LogDeleter"));
+
+    private final Context mContext;
+    private final AppDatabase mDatabase;
+
+    public LogDeleter(Context context) {
+        mContext = context.getApplicationContext();
+        mDatabase = AppDatabase.getDatabase(context);
+    }
+
+    /**
+     * Deletes all sessions and their entries in the background
+     *
+     * @param compact Return the freed space to the file system afterwards
+     */
+    public void delete(List<SessionLog> sessions, boolean compact) {
+        final List<SessionLog> pending = new ArrayList<>(sessions);
+
+        mExecutor.execute(() -> {
+            try {
+                for (SessionLog session : pending) {
+                    // each chunk is its own transaction, other writers can interleave
+                    int deleted;
+                    do {
+                        deleted = mDatabase.nfcCommEntryDao().deleteChunk(session.getId(), CHUNK_SIZE);
+                    } while (deleted > 0);
+
+                    mDatabase.sessionLogDao().delete(session);
+                }
+
+                if (compact)
+                    compact(mDatabase);
+            } catch (RuntimeException e) {
+                // e.g. the disk is full, sessions not deleted yet are kept
+                Log.e(TAG, "Error deleting sessions", e);
+                showToast(R.string.log_delete_error);
+            }
+        });
+    }
+
+    /**
+     * Switches an existing database to incremental vacuum in the background, so later deletes can release space.
+     * Rebuilds the whole file once, which blocks logging and needs free space for a copy of the database.
+     */
+    public void enableCompaction() {
+        mExecutor.execute(() -> {
+            try {
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (!AppDatabase.isIncrementalVacuum(db))
+                    AppDatabase.enableIncrementalVacuum(db);
+
+                showToast(R.string.settings_compact_done);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error rebuilding database", e);
+                showToast(R.string.settings_compact_error);
+            }
+        });
+    }
+
+    /**
+     * Returns the space of deleted rows to the file system in bounded steps.
+     * Does nothing until the database uses incremental vacuum, free pages are then reused by later inserts.
+     */
+    static void compact(AppDatabase database) {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        if (!AppDatabase.isIncrementalVacuum(db))
+            return;
+
+        long free = AppDatabase.queryLong(db, "PRAGMA freelist_count");
+        while (free > 0) {
+            // the pragma returns one row per released page
+            try (Cursor cursor = db.query("PRAGMA incremental_vacuum(" + VACUUM_STEP_PAGES + ")")) {
+                while (cursor.moveToNext())
+                    continue;
+            }
+
+            // stop if nothing was released, other writers may be reusing pages
+            long remaining = AppDatabase.queryLong(db, "PRAGMA freelist_count");
+            if (remaining >= free)
+                break;
+            free = remaining;
+        }
+    }
+
+    private void showToast(@StringRes int message) {
+        new Handler(Looper.getMainLooper()).post(() ->
+                Toast.makeText(mContext, mContext.getString(message), Toast.LENGTH_LONG).show());
+    }
+}
@@ -1,26 +1,49 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.worker;
 
+import java.util.concurrent.CountDownLatch;
+
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
+/**
+ * Entry taken from the LogQueue, reused by the writer thread for every entry
+ */
 public class LogEntry {
-    private final boolean mValid;
-    private final NfcComm mData;
-
-    LogEntry() {
-        mData = null;
-        mValid = false;
+    enum Type {
+        // data to append to the session of the owner
+        DATA,
+        // end the current session of the owner
+        RESET,
+        // write all pending entries of all owners, then release the latch
+        FLUSH,
+        // write all pending entries of the owner, no more entries follow
+        CLOSE
     }
 
-    LogEntry(NfcComm data) {
+    private LogInserter mOwner;
+    private Type mType;
+    private NfcComm mData;
+    private CountDownLatch mLatch;
+
+    void set(LogInserter owner, Type type, NfcComm data, CountDownLatch latch) {
+        mOwner = owner;
+        mType = type;
         mData = data;
-        mValid = true;
+        mLatch = latch;
+    }
+
+    LogInserter getOwner() {
+        return mOwner;
+    }
+
+    Type getType() {
+        return mType;
     }
 
     NfcComm getData() {
         return mData;
     }
 
-    boolean isValid() {
-        return mValid;
+    CountDownLatch getLatch() {
+        return mLatch;
     }
 }
@@ -1,35 +1,63 @@
 package de.tu_darmstadt.seemoo.nfcgate.db.worker;
 
 import android.content.Context;
+import android.content.SharedPreferences;
 
+import androidx.preference.PreferenceManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
 import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
+/**
+ * Logs the entries of one source into sessions.
+ * Cheap to create, all inserters share the writer thread of LogWriter.
+ */
 public class LogInserter {
     public interface SIDChangedListener {
         void onSIDChanged(long sessionID);
     }
 
-    // database
-    private final AppDatabase mDatabase;
+    private final LogWriter mWriter;
     private final SessionLog.SessionType mSessionType;
-    private final BlockingQueue<LogEntry> mQueue = new LinkedBlockingQueue<>();
+    // entries go through the capture journal instead of directly into the database
+    private final boolean mJournaled;
+    private volatile boolean mClosed = false;
+
+    // state of the writer thread
+    private final List<NfcCommEntry> mBatch = new ArrayList<>();
     private long mSessionId = -1;
+    private CaptureJournal.Segment mSegment;
+    // listed in the pending owners of the writer
+    private boolean mPending = false;
 
     // callback
     private final SIDChangedListener mListener;
 
     public LogInserter(Context ctx, SessionLog.SessionType sessionType, SIDChangedListener listener) {
-        mDatabase = AppDatabase.getDatabase(ctx);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(ctx);
+        mWriter = LogWriter.getInstance(ctx);
+        // the overflow setting applies to all sessions from now on
+        mWriter.setOverflowPolicy(LogQueue.OverflowPolicy.fromPreference(prefs.getString("log_overflow", "block")));
+        mJournaled = prefs.getBoolean("log_journal", false);
         mSessionType = sessionType;
         mListener = listener;
-        new LogInserterThread().start();
+    }
+
+    /**
+     * @return Current state of the shared log queue, empty if nothing was logged yet
+     */
+    public static LogQueue.Metrics getQueueMetrics() {
+        // do not start the writer thread and the journal recovery just for the metrics
+        LogWriter writer = LogWriter.peekInstance();
+        return writer != null ? writer.getMetrics() : new LogQueue.Metrics(0, LogWriter.QUEUE_CAPACITY, 0, 0, 0);
     }
 
     private void setSessionId(long sid) {
@@ -40,46 +68,109 @@ public class LogInserter {
     }
 
     public void log(NfcComm data) {
-        try {
-            mQueue.put(new LogEntry(data));
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        }
+        if (!mClosed)
+            mWriter.put(this, LogEntry.Type.DATA, data, null);
     }
 
+    /**
+     * Ends the current session, the next entry starts a new one
+     */
     public void reset() {
-        try {
-            mQueue.put(new LogEntry());
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        }
+        if (!mClosed)
+            mWriter.put(this, LogEntry.Type.RESET, null, null);
+    }
+
+    /**
+     * Blocks until all entries logged so far are written.
+     * Must not be called from the main thread.
+     */
+    public void flush() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        mWriter.put(this, LogEntry.Type.FLUSH, null, latch);
+        latch.await();
     }
 
-    class LogInserterThread extends Thread {
-        LogInserterThread() {
-            // ensure JVM stops this thread at the end of app
-            setDaemon(true);
+    /**
+     * Writes the remaining entries in the background, later entries are ignored
+     */
+    public void close() {
+        if (!mClosed) {
+            mClosed = true;
+            mWriter.put(this, LogEntry.Type.CLOSE, null, null);
         }
+    }
+
+    /**
+     * @return True if the writer has this inserter in its list of owners to write
+     */
+    boolean isPending() {
+        return mPending;
+    }
+
+    void setPending(boolean pending) {
+        mPending = pending;
+    }
 
-        @Override
-        public void run() {
-            while (true) {
-                try {
-                    LogEntry entry = mQueue.take();
+    /**
+     * Adds the entry to the current session, starting one if needed
+     *
+     * @return Number of entries waiting to be written
+     */
+    int append(AppDatabase database, NfcComm data) {
+        // set session id if none is set
+        if (mSessionId == -1)
+            setSessionId(database.sessionLogDao().insert(new SessionLog(new Date(), mSessionType)));
+
+        mBatch.add(new NfcCommEntry(data, mSessionId));
+        return mBatch.size();
+    }
+
+    void endSession() {
+        finish();
+        setSessionId(-1);
+    }
 
-                    // set session id if none is set or reset it on reset data
-                    if (!entry.isValid())
-                        setSessionId(-1);
-                    else if (mSessionId == -1)
-                        setSessionId(mDatabase.sessionLogDao().insert(new SessionLog(new Date(), mSessionType)));
+    /**
+     * Seals the journal segment of the current session
+     */
+    void finish() {
+        if (mSegment != null) {
+            mSegment.seal();
+            mSegment = null;
+        }
+    }
 
-                    if (entry.isValid())
-                        mDatabase.nfcCommEntryDao().insert(new NfcCommEntry(entry.getData(), mSessionId));
+    /**
+     * Writes all collected entries to the journal or in a single transaction to the database and clears the batch
+     */
+    void write(AppDatabase database, CaptureJournal journal) {
+        try {
+            if (!mJournaled)
+                EntryWriter.write(database, mBatch);
+            else if (!writeJournal(journal))
+                // behind the segments of this session that are not compacted yet
+                journal.writeDirect(mBatch);
+        } finally {
+            mBatch.clear();
+        }
+    }
 
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                }
+    /**
+     * @return False if the journal could not be written
+     */
+    private boolean writeJournal(CaptureJournal journal) {
+        try {
+            // full or old segments are sealed, continue in a new one
+            if (mSegment == null || !mSegment.append(mBatch)) {
+                mSegment = journal.open(mSessionId);
+                mSegment.append(mBatch);
             }
+            return true;
+        } catch (IOException e) {
+            // fall back to the database, the segment keeps what it had before this batch
+            e.printStackTrace();
+            finish();
+            return false;
         }
     }
 }
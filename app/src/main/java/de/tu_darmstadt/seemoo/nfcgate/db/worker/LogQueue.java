@@ -0,0 +1,459 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+/**
+ * Bounded ring buffer between the producers and the writer thread.
+ * Slots are preallocated, queueing an entry does not allocate.
+ * Data entries that do not fit are handled according to the OverflowPolicy. Other entries are never dropped,
+ * they wait for space or, while entries are spilled, wait in memory in order with the spilled data.
+ */
+public class LogQueue {
+    public enum OverflowPolicy {
+        // wait until the writer catches up
+        BLOCK,
+        // append to a temporary file, read back once the ring is empty
+        SPILL,
+        // discard new data entries and count them
+        DROP;
+
+        /**
+         * @return The policy for a preference value, BLOCK if unknown
+         */
+        public static OverflowPolicy fromPreference(String value) {
+            if ("spill".equals(value))
+                return SPILL;
+            if ("drop".equals(value))
+                return DROP;
+
+            return BLOCK;
+        }
+    }
+
+    /**
+     * Snapshot of the queue state
+     */
+    public static class Metrics {
+        private final int mDepth;
+        private final int mCapacity;
+        private final int mSpillDepth;
+        private final long mSpilled;
+        private final long mDropped;
+
+        Metrics(int depth, int capacity, int spillDepth, long spilled, long dropped) {
+            mDepth = depth;
+            mCapacity = capacity;
+            mSpillDepth = spillDepth;
+            mSpilled = spilled;
+            mDropped = dropped;
+        }
+
+        /**
+         * @return Entries waiting in memory
+         */
+        public int getDepth() {
+            return mDepth;
+        }
+
+        public int getCapacity() {
+            return mCapacity;
+        }
+
+        /**
+         * @return Entries waiting behind spilled data, in the spill file or in memory
+         */
+        public int getSpillDepth() {
+            return mSpillDepth;
+        }
+
+        /**
+         * @return Data entries written to the spill file since start
+         */
+        public long getSpilled() {
+            return mSpilled;
+        }
+
+        /**
+         * @return Data entries discarded since start
+         */
+        public long getDropped() {
+            return mDropped;
+        }
+    }
+
+    private final ReentrantLock mLock = new ReentrantLock();
+    private final Condition mNotEmpty = mLock.newCondition();
+    private final Condition mNotFull = mLock.newCondition();
+
+    // ring slots, one array per entry field
+    private final LogInserter[] mOwners;
+    private final LogEntry.Type[] mTypes;
+    private final NfcComm[] mData;
+    private final CountDownLatch[] mLatches;
+    private int mHead = 0;
+    private int mCount = 0;
+
+    // file I/O of the spill file happens outside of mLock
+    private final SpillFile mSpill;
+    private OverflowPolicy mPolicy = OverflowPolicy.BLOCK;
+    private long mDropped = 0;
+
+    LogQueue(int capacity, File spillFile) {
+        mOwners = new LogInserter[capacity];
+        mTypes = new LogEntry.Type[capacity];
+        mData = new NfcComm[capacity];
+        mLatches = new CountDownLatch[capacity];
+        mSpill = new SpillFile(spillFile);
+    }
+
+    void setOverflowPolicy(OverflowPolicy policy) {
+        mLock.lock();
+        try {
+            mPolicy = policy;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    Metrics getMetrics() {
+        mLock.lock();
+        try {
+            return new Metrics(mCount, mOwners.length, mSpill.getPending(), mSpill.getSpilled(), mDropped);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Queues an entry, waits for space only if the policy does not allow otherwise
+     */
+    void put(LogInserter owner, LogEntry.Type type, NfcComm data, CountDownLatch latch) throws InterruptedException {
+        boolean spillFailed = false;
+
+        while (true) {
+            mLock.lock();
+            try {
+                while (true) {
+                    // once entries are spilled, newer ones follow them to keep the order
+                    boolean spilling = mSpill.getPending() > 0;
+                    if (!spilling && mCount < mOwners.length) {
+                        int tail = (mHead + mCount) % mOwners.length;
+                        mOwners[tail] = owner;
+                        mTypes[tail] = type;
+                        mData[tail] = data;
+                        mLatches[tail] = latch;
+                        mCount++;
+                        mNotEmpty.signal();
+                        return;
+                    }
+
+                    if (spilling || mPolicy == OverflowPolicy.SPILL) {
+                        // control entries are tiny, they stay in memory in order with the spilled data
+                        if (type != LogEntry.Type.DATA) {
+                            mSpill.addControl(owner, type, latch);
+                            mNotEmpty.signal();
+                            return;
+                        }
+                        // data is written to the file without holding the lock
+                        if (!spillFailed)
+                            break;
+                    }
+
+                    // dropping is also the fallback if the spill file cannot be written
+                    if (type == LogEntry.Type.DATA && mPolicy != OverflowPolicy.BLOCK) {
+                        mDropped++;
+                        return;
+                    }
+
+                    mNotFull.await();
+                }
+            } finally {
+                mLock.unlock();
+            }
+
+            if (spill(owner, data))
+                return;
+            spillFailed = true;
+        }
+    }
+
+    /**
+     * Waits for the next entry and copies it into out
+     */
+    void take(LogEntry out) throws InterruptedException {
+        while (!poll(out, Long.MAX_VALUE)) {
+            // the spill file could not be read, wait for the next entry
+        }
+    }
+
+    /**
+     * Waits up to timeoutMs for the next entry and copies it into out
+     *
+     * @return False if no entry was available in time
+     */
+    boolean poll(LogEntry out, long timeoutMs) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        mLock.lock();
+        try {
+            while (mCount == 0 && !mSpill.isReadable()) {
+                if (nanos <= 0)
+                    return false;
+                nanos = mNotEmpty.awaitNanos(nanos);
+            }
+
+            // the ring only holds entries older than the spilled ones
+            if (mCount > 0) {
+                out.set(mOwners[mHead], mTypes[mHead], mData[mHead], mLatches[mHead]);
+
+                // release references for the garbage collector
+                mOwners[mHead] = null;
+                mData[mHead] = null;
+                mLatches[mHead] = null;
+                mHead = (mHead + 1) % mOwners.length;
+                mCount--;
+                mNotFull.signal();
+                return true;
+            }
+
+            if (mSpill.pollControl(out)) {
+                signalDrained();
+                return true;
+            }
+        } finally {
+            mLock.unlock();
+        }
+
+        // only this thread reads, producers keep appending meanwhile
+        boolean read = true;
+        try {
+            mSpill.readData(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            read = false;
+        }
+
+        mLock.lock();
+        try {
+            // control entries stay, only the unread data is lost
+            if (!read)
+                mDropped += mSpill.discardData();
+            signalDrained();
+            return read;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    private void signalDrained() {
+        // producers waiting for the spill file to drain
+        if (mSpill.getPending() == 0)
+            mNotFull.signalAll();
+    }
+
+    /**
+     * @return False if the spill file could not be written
+     */
+    private boolean spill(LogInserter owner, NfcComm data) {
+        try {
+            mSpill.appendData(owner, data);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        mLock.lock();
+        try {
+            mNotEmpty.signal();
+        } finally {
+            mLock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Overflow storage: data entries in an append-only file, control entries in memory.
+     * Control entries remember how many data entries precede them, so both are read back in order.
+     * The file is deleted as soon as all records are read back.
+     */
+    private static class SpillFile {
+        /**
+         * Control entry waiting behind the data entries spilled before it
+         */
+        private static class Control {
+            final long mDataIndex;
+            final LogInserter mOwner;
+            final LogEntry.Type mType;
+            final CountDownLatch mLatch;
+
+            Control(long dataIndex, LogInserter owner, LogEntry.Type type, CountDownLatch latch) {
+                mDataIndex = dataIndex;
+                mOwner = owner;
+                mType = type;
+                mLatch = latch;
+            }
+        }
+
+        private final File mFile;
+        // guards the output stream, the owner ids and appending, producers hold it while writing
+        private final Object mFileLock = new Object();
+        private DataOutputStream mOut;
+        // only used by the reading thread
+        private DataInputStream mIn;
+
+        // data records appended and read since start, the difference is in the file
+        private volatile long mAppended = 0;
+        private volatile long mRead = 0;
+        // data records known to be flushed to the file, only used by the reading thread
+        private long mFlushed = 0;
+
+        // accessed under the lock of the queue
+        private final ArrayDeque<Control> mControls = new ArrayDeque<>();
+
+        // owners cannot be serialized, records only reference them by index
+        private final Map<LogInserter, Integer> mOwnerIds = new IdentityHashMap<>();
+        private final List<LogInserter> mOwners = new CopyOnWriteArrayList<>();
+
+        SpillFile(File file) {
+            mFile = file;
+            // left over from a previous process
+            mFile.delete();
+        }
+
+        /**
+         * @return Entries waiting in the file or in memory
+         */
+        int getPending() {
+            return (int) (mAppended - mRead) + mControls.size();
+        }
+
+        /**
+         * @return Data entries written to the file since start
+         */
+        long getSpilled() {
+            return mAppended;
+        }
+
+        /**
+         * @return True if the next entry can be read without waiting for a producer
+         */
+        boolean isReadable() {
+            return mAppended > mRead || (!mControls.isEmpty() && mControls.peek().mDataIndex <= mRead);
+        }
+
+        void addControl(LogInserter owner, LogEntry.Type type, CountDownLatch latch) {
+            mControls.add(new Control(mAppended, owner, type, latch));
+        }
+
+        /**
+         * Returns the next control entry if no spilled data precedes it
+         *
+         * @return False if data has to be read first
+         */
+        boolean pollControl(LogEntry out) {
+            Control control = mControls.peek();
+            if (control == null || control.mDataIndex > mRead)
+                return false;
+
+            mControls.poll();
+            out.set(control.mOwner, control.mType, null, control.mLatch);
+            return true;
+        }
+
+        void appendData(LogInserter owner, NfcComm data) throws IOException {
+            // serialize before taking the lock, other producers only wait for the file write
+            byte[] serialized = data.toByteArray();
+
+            synchronized (mFileLock) {
+                if (mOut == null)
+                    mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile)));
+
+                Integer ownerId = mOwnerIds.get(owner);
+                if (ownerId == null) {
+                    ownerId = mOwners.size();
+                    mOwnerIds.put(owner, ownerId);
+                    mOwners.add(owner);
+                }
+
+                // record: int owner, int length, NFCData
+                mOut.writeInt(ownerId);
+                mOut.writeInt(serialized.length);
+                mOut.write(serialized);
+                mAppended++;
+            }
+        }
+
+        void readData(LogEntry out) throws IOException {
+            // records are only read after they are completely written, flushed once per drain
+            if (mRead == mFlushed) {
+                synchronized (mFileLock) {
+                    mOut.flush();
+                    mFlushed = mAppended;
+                }
+            }
+            if (mIn == null)
+                mIn = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+
+            LogInserter owner = mOwners.get(mIn.readInt());
+            byte[] serialized = new byte[mIn.readInt()];
+            mIn.readFully(serialized);
+
+            out.set(owner, LogEntry.Type.DATA, new NfcComm(serialized), null);
+            mRead++;
+
+            synchronized (mFileLock) {
+                // start a new file once everything is read
+                if (mRead == mAppended)
+                    close();
+            }
+        }
+
+        /**
+         * Drops all unread data records, control entries are kept
+         *
+         * @return Number of dropped records
+         */
+        int discardData() {
+            synchronized (mFileLock) {
+                int dropped = (int) (mAppended - mRead);
+                mRead = mAppended;
+                close();
+                return dropped;
+            }
+        }
+
+        private void close() {
+            try {
+                if (mIn != null)
+                    mIn.close();
+                if (mOut != null)
+                    mOut.close();
+            } catch (IOException ignored) { }
+
+            mIn = null;
+            mOut = null;
+            mFlushed = mRead;
+            mOwnerIds.clear();
+            mOwners.clear();
+            mFile.delete();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+
+/**
+ * Single writer thread shared by all LogInserters.
+ * Entries of all sessions are multiplexed over one bounded LogQueue and written in per-session batches.
+ */
+final class LogWriter {
+    // batching limits: max entries per transaction and max time to wait for more entries
+    static final int BATCH_SIZE = 256;
+    private static final long BATCH_TIMEOUT_MS = 100;
+    // entries held in memory, further entries are handled by the overflow policy
+    static final int QUEUE_CAPACITY = 4096;
+    private static final String SPILL_FILE = "log_spill";
+    private static final String JOURNAL_DIR = "journal";
+
+    private static volatile LogWriter mInstance;
+
+    private final AppDatabase mDatabase;
+    private final LogQueue mQueue;
+    private final CaptureJournal mJournal;
+    // entry taken from the queue, only accessed by the writer thread
+    private final LogEntry mEntry = new LogEntry();
+    // inserters with entries not yet written, only accessed by the writer thread
+    private final List<LogInserter> mPending = new ArrayList<>();
+
+    private LogWriter(Context context) {
+        mDatabase = AppDatabase.getDatabase(context);
+        mQueue = new LogQueue(QUEUE_CAPACITY, new File(context.getCacheDir(), SPILL_FILE));
+        // also moves segments of a previous process into the database
+        mJournal = new CaptureJournal(mDatabase, new File(context.getFilesDir(), JOURNAL_DIR));
+
+        Thread thread = new Thread(this::run, "LogWriter");
+        // ensure JVM stops this thread at the end of app
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static LogWriter getInstance(Context context) {
+        if (mInstance == null) {
+            synchronized (LogWriter.class) {
+                if (mInstance == null)
+                    mInstance = new LogWriter(context.getApplicationContext());
+            }
+        }
+
+        return mInstance;
+    }
+
+    /**
+     * @return The instance or null if no inserter was created yet
+     */
+    static LogWriter peekInstance() {
+        return mInstance;
+    }
+
+    void setOverflowPolicy(LogQueue.OverflowPolicy policy) {
+        mQueue.setOverflowPolicy(policy);
+    }
+
+    LogQueue.Metrics getMetrics() {
+        return mQueue.getMetrics();
+    }
+
+    /**
+     * Queues the entry, blocks while the queue is full if the overflow policy requires it
+     */
+    void put(LogInserter owner, LogEntry.Type type, NfcComm data, CountDownLatch latch) {
+        try {
+            mQueue.put(owner, type, data, latch);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                // block until at least one entry is available
+                mQueue.take(mEntry);
+                final long deadline = System.currentTimeMillis() + BATCH_TIMEOUT_MS;
+                boolean available = true;
+                int count = 0;
+
+                // collect entries until enough are pending or time is up
+                while (available) {
+                    process(mEntry);
+                    if (++count >= BATCH_SIZE)
+                        break;
+
+                    // drain queued entries, wait for more only until the deadline
+                    available = mQueue.poll(mEntry, Math.max(0, deadline - System.currentTimeMillis()));
+                }
+
+                flushAll();
+            } catch (InterruptedException ignored) {
+                // the thread lives as long as the process, write what was collected and go on
+                flushAll();
+            } catch (RuntimeException e) {
+                // a failing write must not stop logging of all other sessions
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void process(LogEntry entry) throws InterruptedException {
+        LogInserter owner = entry.getOwner();
+
+        switch (entry.getType()) {
+            case DATA:
+                if (!owner.isPending()) {
+                    owner.setPending(true);
+                    mPending.add(owner);
+                }
+                if (owner.append(mDatabase, entry.getData()) >= BATCH_SIZE)
+                    flush(owner);
+                break;
+
+            case RESET:
+                // reset is a batch boundary: write old session data first
+                flush(owner);
+                owner.endSession();
+                break;
+
+            case CLOSE:
+                flush(owner);
+                owner.finish();
+                break;
+
+            case FLUSH:
+                // never leave the caller waiting, even if the write fails
+                try {
+                    flushAll();
+                    mJournal.sync();
+                } finally {
+                    entry.getLatch().countDown();
+                }
+                break;
+        }
+    }
+
+    private void flush(LogInserter owner) {
+        if (mPending.remove(owner))
+            write(owner);
+    }
+
+    private void flushAll() {
+        for (LogInserter owner : mPending)
+            write(owner);
+        mPending.clear();
+    }
+
+    private void write(LogInserter owner) {
+        owner.setPending(false);
+        try {
+            owner.write(mDatabase, mJournal);
+        } catch (RuntimeException e) {
+            // only this batch is lost, the other owners are still written
+            e.printStackTrace();
+        }
+    }
+}
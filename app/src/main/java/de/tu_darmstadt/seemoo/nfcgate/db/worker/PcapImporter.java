@@ -0,0 +1,187 @@
+package de.tu_darmstadt.seemoo.nfcgate.db.worker;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
+import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.ISO14443Stream;
+
+/**
+ * Imports a pcapng file into a new session on a background thread.
+ * Blocks are decoded while streaming and written in large transactions.
+ */
+public class PcapImporter {
+    public interface ProgressListener {
+        /**
+         * @param read Bytes of the file read so far
+         * @param total Size of the file in bytes or -1 if unknown
+         * @param frames Frames imported so far
+         */
+        void onProgress(long read, long total, int frames);
+
+        void onFinished(int frames);
+
+        void onCancelled();
+
+        void onError(IOException e);
+    }
+
+    // entries per transaction, larger than live batches since nothing waits for single entries
+    private static final int BATCH_SIZE = 2000;
+    // progress is reported at most this often
+    private static final long PROGRESS_INTERVAL_MS = 100;
+
+    // imports run one after another instead of on a thread each
+    private static final ExecutorService mExecutor = Executors.newSingleThreadExecutor(AppDatabase.namedThreads("PcapImporter"));
+
+    private final Context mContext;
+    private final AppDatabase mDatabase;
+    private final Uri mUri;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mCancelled = false;
+
+    public PcapImporter(Context context, Uri uri) {
+        mContext = context.getApplicationContext();
+        mDatabase = AppDatabase.getDatabase(context);
+        mUri = uri;
+    }
+
+    /**
+     * Starts the import, the listener is called on the main thread
+     */
+    public void start(ProgressListener listener) {
+        mExecutor.execute(() -> run(listener));
+    }
+
+    /**
+     * Stops the import after the current block, already imported frames are deleted
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    private void run(ProgressListener listener) {
+        final long total = getSize();
+        final List<NfcCommEntry> batch = new ArrayList<>(BATCH_SIZE);
+        final int[] frames = { 0 };
+        final long[] lastProgress = { 0 };
+        SessionLog session = null;
+
+        try (CountingInputStream in = new CountingInputStream(mContext.getContentResolver().openInputStream(mUri))) {
+            session = new SessionLog(new Date(), SessionLog.SessionType.RELAY);
+            final long sessionId = mDatabase.sessionLogDao().insert(session);
+            session.setId((int) sessionId);
+
+            new ISO14443Stream().readAll(in, comm -> {
+                if (mCancelled)
+                    throw new InterruptedIOException("Import cancelled");
+
+                batch.add(new NfcCommEntry(comm, sessionId));
+                frames[0]++;
+
+                if (batch.size() >= BATCH_SIZE) {
+                    EntryWriter.write(mDatabase, batch);
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastProgress[0] >= PROGRESS_INTERVAL_MS) {
+                    lastProgress[0] = now;
+                    final long read = in.getCount();
+                    final int count = frames[0];
+                    mHandler.post(() -> listener.onProgress(read, total, count));
+                }
+            });
+
+            EntryWriter.write(mDatabase, batch);
+            mHandler.post(() -> listener.onFinished(frames[0]));
+        }
+        catch (IOException | RuntimeException e) {
+            // drop the partial session
+            if (session != null)
+                new LogDeleter(mContext).delete(Collections.singletonList(session), false);
+
+            if (mCancelled)
+                mHandler.post(listener::onCancelled);
+            else
+                mHandler.post(() -> listener.onError(e instanceof IOException ? (IOException) e : new IOException(e)));
+        }
+    }
+
+    private long getSize() {
+        try (AssetFileDescriptor fd = mContext.getContentResolver().openAssetFileDescriptor(mUri, "r")) {
+            return fd != null ? fd.getLength() : -1;
+        } catch (IOException | SecurityException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private volatile long mCount = 0;
+        private long mMark = 0;
+
+        CountingInputStream(InputStream in) throws IOException {
+            super(in);
+            if (in == null)
+                throw new IOException("Cannot open input stream");
+        }
+
+        long getCount() {
+            return mCount;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1)
+                mCount++;
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0)
+                mCount += result;
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            mCount += result;
+            return result;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            super.mark(readlimit);
+            mMark = mCount;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            super.reset();
+            mCount = mMark;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import java.io.IOException;
@@ -23,8 +24,9 @@ import java.util.List;
 
 import de.tu_darmstadt.seemoo.nfcgate.R;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
-import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.ISO14443Stream;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogArchiver;
 import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogInserter;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.PcapImporter;
 import de.tu_darmstadt.seemoo.nfcgate.gui.fragment.AboutFragment;
 import de.tu_darmstadt.seemoo.nfcgate.gui.fragment.CaptureFragment;
 import de.tu_darmstadt.seemoo.nfcgate.gui.fragment.CloneFragment;
@@ -35,7 +37,6 @@ import de.tu_darmstadt.seemoo.nfcgate.gui.fragment.ReplayFragment;
 import de.tu_darmstadt.seemoo.nfcgate.gui.fragment.SettingsFragment;
 import de.tu_darmstadt.seemoo.nfcgate.network.UserTrustManager;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.NfcManager;
-import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
 public class MainActivity extends AppCompatActivity {
     // UI
@@ -47,6 +48,9 @@ public class MainActivity extends AppCompatActivity {
     // NFC
     NfcManager mNfc;
 
+    // resolution of the pcap import progress bar
+    private static final int PCAP_PROGRESS_MAX = 1000;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -102,6 +106,9 @@ public class MainActivity extends AppCompatActivity {
 
         // TLS setup
         UserTrustManager.init(this);
+
+        // compress old sessions if enabled
+        new LogArchiver(this).archiveOld();
     }
 
     @Override
@@ -200,17 +207,57 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void importPcap(Uri uri) {
-        try {
-            LogInserter inserter = new LogInserter(this, SessionLog.SessionType.RELAY, null);
+        final PcapImporter importer = new PcapImporter(this, uri);
+
+        // determinate once the file size is known
+        final ProgressBar progress = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progress.setIndeterminate(true);
+        progress.setMax(PCAP_PROGRESS_MAX);
+        int padding = getResources().getDimensionPixelSize(R.dimen.activity_horizontal_margin);
+        progress.setPadding(padding, padding, padding, 0);
+
+        final AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.pcap_importing))
+                .setMessage(getString(R.string.pcap_frames, 0))
+                .setView(progress)
+                .setCancelable(false)
+                .setNegativeButton(getString(R.string.button_cancel), (d, which) -> importer.cancel())
+                .show();
 
-            for (NfcComm e : new ISO14443Stream().readAll(getContentResolver().openInputStream(uri)))
-                inserter.log(e);
-            Toast.makeText(this, getString(R.string.pcap_success), Toast.LENGTH_SHORT).show();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, getString(R.string.pcap_error), Toast.LENGTH_SHORT).show();
-        }
+        importer.start(new PcapImporter.ProgressListener() {
+            @Override
+            public void onProgress(long read, long total, int frames) {
+                if (total > 0) {
+                    progress.setIndeterminate(false);
+                    progress.setProgress((int) (PCAP_PROGRESS_MAX * Math.min(read, total) / total));
+                }
+                dialog.setMessage(getString(R.string.pcap_frames, frames));
+            }
+
+            @Override
+            public void onFinished(int frames) {
+                finish(getString(R.string.pcap_success));
+            }
+
+            @Override
+            public void onCancelled() {
+                finish(getString(R.string.pcap_cancelled));
+            }
+
+            @Override
+            public void onError(IOException e) {
+                e.printStackTrace();
+                finish(getString(R.string.pcap_error));
+            }
+
+            private void finish(String message) {
+                if (isDestroyed())
+                    return;
+
+                dialog.dismiss();
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     public void importCapture(List<Bundle> capture) {
@@ -218,6 +265,8 @@ public class MainActivity extends AppCompatActivity {
 
         for (Bundle b : capture)
             inserter.log(CaptureFragment.fromBundle(b));
+        // all entries belong to one session, written in the background
+        inserter.close();
 
         Toast.makeText(this, getString(R.string.pcap_log), Toast.LENGTH_SHORT).show();
     }
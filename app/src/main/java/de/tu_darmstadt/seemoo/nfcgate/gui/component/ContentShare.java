@@ -3,6 +3,8 @@ package de.tu_darmstadt.seemoo.nfcgate.gui.component;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.core.content.FileProvider;
 
 import android.util.Log;
@@ -64,7 +66,9 @@ public class ContentShare {
             share.write(stream);
         }
         catch (IOException e) {
-            Toast.makeText(mContext, mContext.getString(R.string.share_error), Toast.LENGTH_LONG).show();
+            // file may be written from a background thread, show error on the UI thread
+            new Handler(Looper.getMainLooper()).post(() ->
+                    Toast.makeText(mContext, mContext.getString(R.string.share_error), Toast.LENGTH_LONG).show());
             Log.e("FileShare", "Error sharing file", e);
             return this;
         }
@@ -90,6 +94,10 @@ public class ContentShare {
     }
 
     public void share() {
+        // nothing to share if writing the file failed
+        if (mShareIntent == null)
+            return;
+
         // open chooser and start selected intent
         mContext.startActivity(Intent.createChooser(mShareIntent, null));
     }
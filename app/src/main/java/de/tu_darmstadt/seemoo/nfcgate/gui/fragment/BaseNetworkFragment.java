@@ -54,6 +54,15 @@ public abstract class BaseNetworkFragment extends BaseFragment implements LogIns
         return v;
     }
 
+    @Override
+    public void onDestroyView() {
+        // write remaining entries, later callbacks are ignored and the next view creates a new inserter
+        if (mLogInserter != null)
+            mLogInserter.close();
+
+        super.onDestroyView();
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.toolbar_relay, menu);
@@ -26,7 +26,7 @@ import de.tu_darmstadt.seemoo.nfcgate.db.TagInfo;
 import de.tu_darmstadt.seemoo.nfcgate.db.model.TagInfoViewModel;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.StatusBanner;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.NfcManager;
-import de.tu_darmstadt.seemoo.nfcgate.nfc.config.ConfigBuilder;
+import de.tu_darmstadt.seemoo.nfcgate.nfc.config.ConfigView;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.modes.CloneMode;
 import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
@@ -162,7 +162,7 @@ public class CloneFragment extends BaseFragment {
 
     void setCloneContent(NfcComm data) {
         mCloneType.setImageResource(data.isCard() ? R.drawable.ic_tag_grey_60dp : R.drawable.ic_reader_grey_60dp);
-        mCloneContent.setText(new ConfigBuilder(data.getData()).toString());
+        mCloneContent.setText(new ConfigView(data.getData()).toString());
         mCloneData = data.toByteArray();
     }
 
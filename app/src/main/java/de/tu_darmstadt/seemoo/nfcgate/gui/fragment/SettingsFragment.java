@@ -6,6 +6,7 @@ import android.widget.Toast;
 import androidx.preference.PreferenceFragmentCompat;
 
 import de.tu_darmstadt.seemoo.nfcgate.R;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogDeleter;
 import de.tu_darmstadt.seemoo.nfcgate.network.UserTrustManager;
 
 public class SettingsFragment extends PreferenceFragmentCompat {
@@ -18,5 +19,10 @@ public class SettingsFragment extends PreferenceFragmentCompat {
             Toast.makeText(getContext(), R.string.settings_adv_replay_toast, Toast.LENGTH_LONG).show();
             return true;
         });
+
+        findPreference("compact_database").setOnPreferenceClickListener((preference) -> {
+            new LogDeleter(requireContext()).enableCompaction();
+            return true;
+        });
     }
 }
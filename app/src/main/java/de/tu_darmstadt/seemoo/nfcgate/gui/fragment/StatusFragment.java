@@ -2,9 +2,13 @@ package de.tu_darmstadt.seemoo.nfcgate.gui.fragment;
 import android.content.Context;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.StringRes;
 import androidx.appcompat.app.AlertDialog;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -16,9 +20,16 @@ import android.widget.AdapterView;
 import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.TextView;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import de.tu_darmstadt.seemoo.nfcgate.R;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogInserter;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogQueue;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.CustomArrayAdapter;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.ContentShare;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.StatusItem;
@@ -29,6 +40,12 @@ public class StatusFragment extends BaseFragment {
     // ui references
     private ListView mStatus;
     private StatusListAdapter mStatusAdapter;
+    // probes run in parallel off the main thread
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService mProbeExecutor;
+    private StatusItem[] mResults;
+    private Context mContext;
+    private NfcManager mNfc;
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -77,6 +94,14 @@ public class StatusFragment extends BaseFragment {
         detect();
     }
     @Override
+    public void onDestroyView() {
+        // results of running probes are discarded
+        if (mProbeExecutor != null)
+            mProbeExecutor.shutdownNow();
+        mHandler.removeCallbacksAndMessages(null);
+        super.onDestroyView();
+    }
+    @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.toolbar_status, menu);
         super.onCreateOptionsMenu(menu, inflater);
@@ -117,24 +142,63 @@ public class StatusFragment extends BaseFragment {
                 .share();
     }
     void detect() {
-        mStatusAdapter.add(detectDeviceName());
-        mStatusAdapter.add(detectAndroidVersion());
-        mStatusAdapter.add(detectBuildNumber());
-        mStatusAdapter.add(detectNfcEnabled());
-        mStatusAdapter.add(detectHceCapability());
-        mStatusAdapter.add(detectModuleEnabled());
-        mStatusAdapter.add(detectNativeHookEnabled());
-        mStatusAdapter.add(detectNfcModel());
+        // probes must not touch the fragment, it may be detached before they finish
+        mContext = requireContext().getApplicationContext();
+        mNfc = getNfc();
+        final List<Probe> probes = Arrays.asList(
+                new Probe(R.string.status_devname, this::detectDeviceName),
+                new Probe(R.string.status_version, this::detectAndroidVersion),
+                new Probe(R.string.status_build, this::detectBuildNumber),
+                new Probe(R.string.status_nfc, this::detectNfcEnabled),
+                new Probe(R.string.status_hce, this::detectHceCapability),
+                new Probe(R.string.status_xposed, this::detectModuleEnabled),
+                new Probe(R.string.status_hook, this::detectNativeHookEnabled),
+                new Probe(R.string.status_chip, this::detectNfcModel),
+                new Probe(R.string.status_log_queue, this::detectLogQueue));
+        mResults = new StatusItem[probes.size()];
+        mProbeExecutor = Executors.newFixedThreadPool(probes.size());
+        for (int i = 0; i < probes.size(); i++) {
+            final int index = i;
+            final Probe probe = probes.get(i);
+            final StatusItem[] results = mResults;
+            mProbeExecutor.execute(() -> {
+                StatusItem item;
+                try {
+                    item = probe.mCall.call();
+                } catch (Exception e) {
+                    // keep the row, so the shared report shows the failed probe
+                    Log.e("StatusFragment", "Status probe failed", e);
+                    item = new StatusItem(mContext, mContext.getString(probe.mName))
+                            .setValue(mContext.getString(R.string.status_unknown));
+                    item.setWarn(mContext.getString(R.string.warn_PROBE, e.toString()));
+                }
+                final StatusItem result = item;
+                mHandler.post(() -> onProbeResult(results, index, result));
+            });
+        }
+        mProbeExecutor.shutdown();
+    }
+    private void onProbeResult(StatusItem[] results, int index, StatusItem item) {
+        // ignore late results of a previous detection
+        if (results != mResults)
+            return;
+        results[index] = item;
+        // keep the fixed probe order regardless of completion order
+        mStatusAdapter.setNotifyOnChange(false);
+        mStatusAdapter.clear();
+        for (StatusItem result : results)
+            if (result != null)
+                mStatusAdapter.add(result);
         mStatusAdapter.notifyDataSetChanged();
     }
     StatusItem detectDeviceName() {
         // transform code name into market name
-        String deviceString = new DeviceNames(getContext()).formatCurrentDeviceName();
+        String deviceString = new DeviceNames(mContext).formatCurrentDeviceName();
         // device name should be OK for all supported devices
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_devname)).setValue(deviceString);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_devname)).setValue(deviceString);
         // No hist byte on this specific combination
         if ("Nexus 5X".equals(Build.MODEL) && Build.VERSION.RELEASE.equals("6.0.1"))
-            result.setWarn(getString(R.string.warn_5X601));
+            result.setWarn(mContext.getString(R.string.warn_5X601));
         return result;
     }
     Map<Integer, String> ANDROID_VERSION_CODENAMES_MAP = new HashMap<>() {{
@@ -158,69 +222,90 @@ public class StatusFragment extends BaseFragment {
     StatusItem detectAndroidVersion() {
         // get android version codename for the current SDK_INT or use "Unknown" if not found
         String versionCodeName = ANDROID_VERSION_CODENAMES_MAP.containsKey(Build.VERSION.SDK_INT) ?
-                ANDROID_VERSION_CODENAMES_MAP.get(Build.VERSION.SDK_INT) : getString(R.string.status_unknown);
+                ANDROID_VERSION_CODENAMES_MAP.get(Build.VERSION.SDK_INT) : mContext.getString(R.string.status_unknown);
         // assemble the version number, codename and SDK_INT into a single string in the format:
         // "<versionNumber> <codeName> (<SDK_INT>)", e.g. "10 Quince Tart (29)"
-        String versionText = getString(R.string.status_version_text, Build.VERSION.RELEASE,
+        String versionText = mContext.getString(R.string.status_version_text, Build.VERSION.RELEASE,
                 versionCodeName, Build.VERSION.SDK_INT);
         // android version should be OK for all supported versions
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_version)).setValue(versionText);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_version)).setValue(versionText);
         // Android 17 and above is untested (Android 16/Baklava is now tested)
         if (Build.VERSION.SDK_INT > 36 /* Build.VERSION_CODES.BAKLAVA */)
-            result.setWarn(getString(R.string.warn_AV));
+            result.setWarn(mContext.getString(R.string.warn_AV));
         return result;
     }
     StatusItem detectBuildNumber() {
         // build number
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_build)).setValue(Build.DISPLAY);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_build)).setValue(Build.DISPLAY);
         return result;
     }
     StatusItem detectNfcEnabled() {
         // NFC capability and enabled
-        boolean hasNfc = getNfc().isEnabled();
+        boolean hasNfc = mNfc.isEnabled();
         // NFC Capability should be OK if it is enabled
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_nfc)).setValue(hasNfc);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_nfc)).setValue(hasNfc);
         if (!hasNfc)
-            result.setError(getString(R.string.error_NFCCAP));
+            result.setError(mContext.getString(R.string.error_NFCCAP));
         return result;
     }
     StatusItem detectHceCapability() {
         // HCE capability
-        boolean hasHCE = getNfc().hasHce();
+        boolean hasHCE = mNfc.hasHce();
         // HCE Capability
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_hce)).setValue(hasHCE);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_hce)).setValue(hasHCE);
         if (!hasHCE)
-            result.setWarn(getString(R.string.warn_HCE));
+            result.setWarn(mContext.getString(R.string.warn_HCE));
         return result;
     }
     StatusItem detectModuleEnabled() {
         // xposed module enabled
         boolean hasModule = NfcManager.isModuleLoaded();
         // Xposed module should be OK if it is enabled
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_xposed)).setValue(hasModule);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_xposed)).setValue(hasModule);
         if (!hasModule)
-            result.setWarn(getString(R.string.warn_XPOMOD));
+            result.setWarn(mContext.getString(R.string.warn_XPOMOD));
         return result;
     }
     StatusItem detectNativeHookEnabled() {
         // native hook enabled
-        boolean hasNativeHook = getNfc().isHookEnabled();
+        boolean hasNativeHook = mNfc.isHookEnabled();
         // native hook is OK if enabled
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_hook)).setValue(hasNativeHook);
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_hook)).setValue(hasNativeHook);
         if (!hasNativeHook)
-            result.setWarn(getString(R.string.warn_NATMOD));
+            result.setWarn(mContext.getString(R.string.warn_NATMOD));
         return result;
     }
     StatusItem detectNfcModel() {
         // null or chip model name
-        String chipName = NfcChip.detect();
+        String chipName = NfcChip.detect(mContext);
         // Chip model should be OK if it can be detected
-        StatusItem result = new StatusItem(getContext(), getString(R.string.status_chip))
-                .setValue(chipName != null ? chipName : getString(R.string.status_unknown));
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_chip))
+                .setValue(chipName != null ? chipName : mContext.getString(R.string.status_unknown));
         if (chipName == null)
-            result.setWarn(getString(R.string.warn_NFCMOD));
+            result.setWarn(mContext.getString(R.string.warn_NFCMOD));
         return result;
     }
+    StatusItem detectLogQueue() {
+        // memory use of the capture log, entries beyond capacity are handled by the overflow policy
+        LogQueue.Metrics metrics = LogInserter.getQueueMetrics();
+        StatusItem result = new StatusItem(mContext, mContext.getString(R.string.status_log_queue))
+                .setValue(mContext.getString(R.string.status_log_queue_text, metrics.getDepth(), metrics.getCapacity(),
+                        metrics.getSpillDepth(), metrics.getDropped()));
+        // dropped entries are missing from the logs
+        if (metrics.getDropped() > 0)
+            result.setWarn(mContext.getString(R.string.warn_LOGDROP, metrics.getDropped()));
+        return result;
+    }
+    private static class Probe {
+        @StringRes
+        final int mName;
+        final Callable<StatusItem> mCall;
+
+        Probe(@StringRes int name, Callable<StatusItem> call) {
+            mName = name;
+            mCall = call;
+        }
+    }
     private static class StatusListAdapter extends CustomArrayAdapter<StatusItem> {
         StatusListAdapter(@NonNull Context context, int resource) {
             super(context, resource);
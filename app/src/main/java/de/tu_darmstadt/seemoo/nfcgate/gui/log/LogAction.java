@@ -1,63 +1,69 @@
 package de.tu_darmstadt.seemoo.nfcgate.gui.log;
 
-import androidx.lifecycle.ViewModelProviders;
+import android.util.Log;
+import android.widget.Toast;
+
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import de.tu_darmstadt.seemoo.nfcgate.R;
 import de.tu_darmstadt.seemoo.nfcgate.db.AppDatabase;
-import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
+import de.tu_darmstadt.seemoo.nfcgate.db.SessionEntryReader;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
-import de.tu_darmstadt.seemoo.nfcgate.db.model.SessionLogEntryViewModel;
-import de.tu_darmstadt.seemoo.nfcgate.db.model.SessionLogEntryViewModelFactory;
-import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.ISO14443Stream;
+import de.tu_darmstadt.seemoo.nfcgate.db.pcapng.ISO14443SessionStream;
+import de.tu_darmstadt.seemoo.nfcgate.db.worker.LogDeleter;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.ContentShare;
-import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
 
 public class LogAction {
+    // exports run one after another on a shared background thread
+    private static final ExecutorService mExecutor = Executors.newSingleThreadExecutor(AppDatabase.namedThreads("LogAction"));
+
     private final Fragment mFragment;
-    private final List<NfcComm> mLogItems = new ArrayList<>();
 
     public LogAction(Fragment fragment) {
         mFragment = fragment;
     }
 
     public void delete(final SessionLog session) {
-        new Thread() {
-            @Override
-            public void run() {
-                AppDatabase.getDatabase(mFragment.getActivity()).sessionLogDao().delete(session);
-            }
-        }.start();
+        delete(Collections.singletonList(session));
+    }
+
+    public void delete(final List<SessionLog> sessions) {
+        // compact the database file after deleting
+        new LogDeleter(mFragment.getActivity()).delete(sessions, true);
     }
 
     public void share(final SessionLog session) {
-        // clear previous items
-        mLogItems.clear();
+        final FragmentActivity activity = mFragment.getActivity();
+        if (activity == null)
+            return;
 
-        // setup db model
-        final SessionLogEntryViewModel mLogEntryModel = ViewModelProviders.of(mFragment, new SessionLogEntryViewModelFactory(
-                        mFragment.getActivity().getApplication(), session.getId()))
-                .get(SessionLogEntryViewModel.class);
+        final SessionEntryReader reader = new SessionEntryReader(AppDatabase.getDatabase(activity), session.getId());
 
-        mLogEntryModel.getSession().observe(mFragment, sessionLogJoin -> {
-            if (sessionLogJoin != null && mLogItems.isEmpty()) {
-                for (NfcCommEntry nfcCommEntry : sessionLogJoin.getNfcCommEntries())
-                    mLogItems.add(nfcCommEntry.getNfcComm());
+        // stream pcap from the database in the background, then share on the UI thread
+        mExecutor.execute(() -> {
+            try {
+                final ContentShare share = new ContentShare(activity)
+                        .setPrefix(session.toString())
+                        .setExtension(".pcapng")
+                        .setMimeType("application/*")
+                        .setFile(new ISO14443SessionStream(reader));
 
-                share(session, mLogItems);
+                activity.runOnUiThread(() -> {
+                    // the user may have left in the meantime
+                    if (!activity.isFinishing())
+                        share.share();
+                });
+            } catch (RuntimeException e) {
+                Log.e("LogAction", "Error exporting session", e);
+                activity.runOnUiThread(() ->
+                        Toast.makeText(activity, activity.getString(R.string.pcap_error), Toast.LENGTH_LONG).show());
             }
         });
     }
-
-    public void share(SessionLog sessionLog, List<NfcComm> logItems) {
-        // share pcap
-        new ContentShare(mFragment.getActivity())
-                .setPrefix(sessionLog.toString())
-                .setExtension(".pcapng")
-                .setMimeType("application/*")
-                .setFile(new ISO14443Stream().append(logItems))
-                .share();
-    }
 }
@@ -3,14 +3,18 @@ package de.tu_darmstadt.seemoo.nfcgate.gui.log;
 import androidx.lifecycle.ViewModelProviders;
 import android.content.Context;
 import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
 import android.view.ActionMode;
 import android.view.LayoutInflater;
 import android.view.Menu;
+import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.tu_darmstadt.seemoo.nfcgate.R;
+import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommSearch;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
 import de.tu_darmstadt.seemoo.nfcgate.db.model.SessionLogViewModel;
 import de.tu_darmstadt.seemoo.nfcgate.gui.component.CustomArrayAdapter;
@@ -35,6 +40,7 @@ public class LoggingFragment extends Fragment {
     final List<Integer> mActionSelections = new ArrayList<>();
 
     // db data
+    private SessionLogViewModel mLogModel;
     private LogAction mLogAction;
     private SessionLogListAdapter mLogAdapter;
 
@@ -53,8 +59,11 @@ public class LoggingFragment extends Fragment {
         mEmptyText = v.findViewById(R.id.txt_empty);
         mLogAction = new LogAction(this);
 
+        // custom toolbar actions
+        setHasOptionsMenu(true);
+
         // setup db model
-        SessionLogViewModel mLogModel = ViewModelProviders.of(this).get(SessionLogViewModel.class);
+        mLogModel = ViewModelProviders.of(this).get(SessionLogViewModel.class);
         mLogModel.getSessionLogs().observe(getViewLifecycleOwner(), sessionLogs -> {
             mLogAdapter.clear();
             mLogAdapter.addAll(sessionLogs);
@@ -95,6 +104,49 @@ public class LoggingFragment extends Fragment {
         mLog.setAdapter(mLogAdapter);
     }
 
+    @Override
+    public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+        inflater.inflate(R.menu.toolbar_log_search, menu);
+
+        // search sessions by byte pattern
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.log_search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String pattern) {
+                String query = NfcCommSearch.toMatchQuery(pattern);
+                if (query != null)
+                    mLogModel.setSearchQuery(query);
+                else
+                    Toast.makeText(getActivity(), getString(R.string.log_search_invalid), Toast.LENGTH_LONG).show();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String pattern) {
+                // show all sessions again once the pattern is cleared
+                if (pattern.isEmpty())
+                    mLogModel.setSearchQuery(null);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                mLogModel.setSearchQuery(null);
+                return true;
+            }
+        });
+
+        super.onCreateOptionsMenu(menu, inflater);
+    }
+
     private void toggleSelection(int position) {
         // remove if exists, add if it doesn't
         if (!mActionSelections.remove(Integer.valueOf(position)))
@@ -145,8 +197,7 @@ public class LoggingFragment extends Fragment {
 
             switch (item.getItemId()) {
                 case R.id.action_delete:
-                    for (SessionLog sessionLog : sessionLogs)
-                        mLogAction.delete(sessionLog);
+                    mLogAction.delete(sessionLogs);
 
                     mode.finish();
                     return true;
@@ -204,6 +255,12 @@ public class LoggingFragment extends Fragment {
             v.<ImageView>findViewById(R.id.type).setImageResource(byType(entry.getType()));
             // set title to date
             v.<TextView>findViewById(R.id.title).setText(entry.getDate().toString());
+            // set summary from the stored session statistics
+            v.<TextView>findViewById(R.id.summary).setText(getString(R.string.log_summary,
+                    entry.getFrameCount(),
+                    DateUtils.formatElapsedTime(entry.getDuration() / 1000),
+                    Formatter.formatShortFileSize(getContext(), entry.getCardBytes()),
+                    Formatter.formatShortFileSize(getContext(), entry.getReaderBytes())));
             // color selected items
             v.setBackgroundResource(bySelection(mActionSelections.contains(position)));
 
@@ -1,7 +1,6 @@
 package de.tu_darmstadt.seemoo.nfcgate.gui.log;
 
 import androidx.lifecycle.ViewModelProviders;
-import android.content.Context;
 import android.os.Bundle;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
@@ -9,16 +8,22 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.appcompat.app.ActionBar;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.util.LruCache;
 import android.view.ViewGroup;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.TextView;
 
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -28,11 +33,9 @@ import de.tu_darmstadt.seemoo.nfcgate.db.NfcCommEntry;
 import de.tu_darmstadt.seemoo.nfcgate.db.SessionLog;
 import de.tu_darmstadt.seemoo.nfcgate.db.model.SessionLogEntryViewModel;
 import de.tu_darmstadt.seemoo.nfcgate.db.model.SessionLogEntryViewModelFactory;
-import de.tu_darmstadt.seemoo.nfcgate.gui.component.CustomArrayAdapter;
-import de.tu_darmstadt.seemoo.nfcgate.nfc.config.ConfigBuilder;
-import de.tu_darmstadt.seemoo.nfcgate.util.NfcComm;
+import de.tu_darmstadt.seemoo.nfcgate.nfc.config.ConfigView;
 
-import static de.tu_darmstadt.seemoo.nfcgate.util.Utils.bytesToHexDump;
+import de.tu_darmstadt.seemoo.nfcgate.util.Utils;
 
 public class SessionLogEntryFragment extends Fragment {
     public enum Type {
@@ -45,15 +48,13 @@ public class SessionLogEntryFragment extends Fragment {
     }
 
     // UI references
-    ListView mLogEntries;
+    RecyclerView mLogEntries;
 
-    private SessionLogEntryListAdapter mLogEntriesAdapter;
     private long mSessionId;
     private Type mType;
 
     // current data
     private LogAction mLogAction;
-    private final List<NfcComm> mLogData = new ArrayList<>();
     private SessionLog mSessionLog;
 
     // callback
@@ -100,35 +101,37 @@ public class SessionLogEntryFragment extends Fragment {
         }
 
         // setup db model
-        // db data
         final SessionLogEntryViewModel mLogEntryModel = ViewModelProviders.of(this, new SessionLogEntryViewModelFactory(getActivity().getApplication(), mSessionId))
                 .get(SessionLogEntryViewModel.class);
 
-        mLogEntryModel.getSession().observe(getViewLifecycleOwner(), sessionLogJoin -> {
-            mLogEntriesAdapter.clear();
-            mLogData.clear();
-
-            if (sessionLogJoin != null) {
-                // save current log data
-                mSessionLog = sessionLogJoin.getSessionLog();
-                for (NfcCommEntry nfcCommEntry : sessionLogJoin.getNfcCommEntries())
-                    mLogData.add(nfcCommEntry.getNfcComm());
-
-                // add log data to list adapter
-                mLogEntriesAdapter.addAll(mLogData);
-                mLogEntriesAdapter.notifyDataSetChanged();
-
-                // live requires autoscroll, view and select require subtitle
-                if (mType == Type.LIVE)
-                    mLogEntries.setSelection(mLogEntriesAdapter.getCount() - 1);
-                else
-                    actionBar.setSubtitle(mSessionLog.toString());
-            }
+        mLogEntries.setLayoutManager(new LinearLayoutManager(getActivity()));
+
+        mLogEntryModel.getSessionLog().observe(getViewLifecycleOwner(), sessionLog -> {
+            mSessionLog = sessionLog;
+
+            // view and select require subtitle
+            if (sessionLog != null && mType != Type.LIVE)
+                actionBar.setSubtitle(sessionLog.toString());
         });
 
-        // setup db data and view adapter
-        mLogEntriesAdapter = new SessionLogEntryListAdapter(getActivity(), R.layout.list_log_entry);
-        mLogEntries.setAdapter(mLogEntriesAdapter);
+        if (mType == Type.LIVE) {
+            // live only appends new entries, requires autoscroll
+            final LiveEntryListAdapter adapter = new LiveEntryListAdapter();
+            mLogEntries.setAdapter(adapter);
+
+            mLogEntryModel.newEntryFeed().observe(getViewLifecycleOwner(), entries -> {
+                adapter.append(entries);
+                mLogEntries.scrollToPosition(adapter.getItemCount() - 1);
+            });
+        }
+        else {
+            // entries are paged from the database and diffed against the previous pages
+            final SessionLogEntryListAdapter adapter = new SessionLogEntryListAdapter();
+            mLogEntries.setAdapter(adapter);
+
+            mLogEntryModel.getEntries().observe(getViewLifecycleOwner(), entries ->
+                    adapter.submitData(getViewLifecycleOwner().getLifecycle(), entries));
+        }
     }
 
     @Override
@@ -151,7 +154,7 @@ public class SessionLogEntryFragment extends Fragment {
             mCallback.onLogSelected(mSessionId);
             return true;
         } else if (R.id.action_share == item.getItemId()) {
-            mLogAction.share(mSessionLog, mLogData);
+            mLogAction.share(mSessionLog);
             return true;
         } else if (R.id.action_delete == item.getItemId()) {
             mLogAction.delete(mSessionLog);
@@ -161,9 +164,67 @@ public class SessionLogEntryFragment extends Fragment {
         return super.onOptionsItemSelected(item);
     }
 
-    private static class SessionLogEntryListAdapter extends CustomArrayAdapter<NfcComm> {
-        SessionLogEntryListAdapter(@NonNull Context context, int resource) {
-            super(context, resource);
+    /**
+     * Renders row text once per entry and keeps recently rendered rows, shared by all rows of an adapter
+     */
+    static class EntryRenderer {
+        // upper bound of cached text in chars
+        private static final int CACHE_CHARS = 256 * 1024;
+
+        static class RowText {
+            final String data;
+            final String timestamp;
+
+            RowText(String data, String timestamp) {
+                this.data = data;
+                this.timestamp = timestamp;
+            }
+        }
+
+        private final LruCache<Integer, RowText> mCache = new LruCache<Integer, RowText>(CACHE_CHARS) {
+            @Override
+            protected int sizeOf(Integer key, RowText value) {
+                return value.data.length() + value.timestamp.length();
+            }
+        };
+        private final SimpleDateFormat mDateFormat = SessionLog.isoDateFormatter();
+        // hexdump output buffer, grows with the largest entry
+        private char[] mHexChars = new char[1024];
+
+        RowText render(NfcCommEntry entry) {
+            RowText result = mCache.get(entry.getEntryId());
+            if (result == null) {
+                result = new RowText(renderData(entry), mDateFormat.format(new Date(entry.getTimestamp())));
+                mCache.put(entry.getEntryId(), result);
+            }
+            return result;
+        }
+
+        private String renderData(NfcCommEntry entry) {
+            final byte[] data = entry.getData();
+
+            // config stream
+            if (entry.isInitial())
+                return new ConfigView(data).toString();
+
+            // binary content
+            int length = Utils.hexDumpLength(data.length);
+            if (mHexChars.length < length)
+                mHexChars = new char[length];
+            return new String(mHexChars, 0, Utils.bytesToHexDump(ByteBuffer.wrap(data), mHexChars));
+        }
+    }
+
+    static class EntryViewHolder extends RecyclerView.ViewHolder {
+        final ImageView type;
+        final TextView data;
+        final TextView timestamp;
+
+        EntryViewHolder(ViewGroup parent) {
+            super(LayoutInflater.from(parent.getContext()).inflate(R.layout.list_log_entry, parent, false));
+            type = itemView.findViewById(R.id.type);
+            data = itemView.findViewById(R.id.data);
+            timestamp = itemView.findViewById(R.id.timestamp);
         }
 
         @DrawableRes
@@ -171,24 +232,83 @@ public class SessionLogEntryFragment extends Fragment {
             return card ? R.drawable.ic_tag_grey_60dp : R.drawable.ic_reader_grey_60dp;
         }
 
-        private String byInitial(boolean initial, byte[] data) {
-            return initial ? new ConfigBuilder(data).toString() : bytesToHexDump(data);
-        }
+        void bind(@Nullable NfcCommEntry entry, EntryRenderer renderer) {
+            // placeholder for a page that is not loaded yet
+            if (entry == null) {
+                type.setImageDrawable(null);
+                data.setText(null);
+                timestamp.setText(null);
+                return;
+            }
 
-        @NonNull
-        @Override
-        public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-            View v = super.getView(position, convertView, parent);
-            final NfcComm comm = getItem(position);
+            // text is only rendered (and the entry parsed) if not cached
+            final EntryRenderer.RowText text = renderer.render(entry);
 
             // set image indicating card or reader
-            v.<ImageView>findViewById(R.id.type).setImageResource(byCard(comm.isCard()));
+            type.setImageResource(byCard(entry.isCard()));
             // set content to either config stream or binary content
-            v.<TextView>findViewById(R.id.data).setText(byInitial(comm.isInitial(), comm.getData()));
+            data.setText(text.data);
             // set timestamp
-            v.<TextView>findViewById(R.id.timestamp).setText(SessionLog.isoDateFormatter().format(new Date(comm.getTimestamp())));
+            timestamp.setText(text.timestamp);
+        }
+    }
+
+    private static class SessionLogEntryListAdapter extends PagingDataAdapter<NfcCommEntry, EntryViewHolder> {
+        private static final DiffUtil.ItemCallback<NfcCommEntry> DIFF_CALLBACK = new DiffUtil.ItemCallback<NfcCommEntry>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull NfcCommEntry oldItem, @NonNull NfcCommEntry newItem) {
+                return oldItem.getEntryId() == newItem.getEntryId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull NfcCommEntry oldItem, @NonNull NfcCommEntry newItem) {
+                // stored entries are never modified
+                return true;
+            }
+        };
+
+        private final EntryRenderer mRenderer = new EntryRenderer();
+
+        SessionLogEntryListAdapter() {
+            super(DIFF_CALLBACK);
+        }
 
-            return v;
+        @NonNull
+        @Override
+        public EntryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new EntryViewHolder(parent);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull EntryViewHolder holder, int position) {
+            holder.bind(getItem(position), mRenderer);
+        }
+    }
+
+    private static class LiveEntryListAdapter extends RecyclerView.Adapter<EntryViewHolder> {
+        private final List<NfcCommEntry> mEntries = new ArrayList<>();
+        private final EntryRenderer mRenderer = new EntryRenderer();
+
+        void append(List<NfcCommEntry> entries) {
+            int start = mEntries.size();
+            mEntries.addAll(entries);
+            notifyItemRangeInserted(start, entries.size());
+        }
+
+        @NonNull
+        @Override
+        public EntryViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new EntryViewHolder(parent);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull EntryViewHolder holder, int position) {
+            holder.bind(mEntries.get(position), mRenderer);
+        }
+
+        @Override
+        public int getItemCount() {
+            return mEntries.size();
         }
     }
 }
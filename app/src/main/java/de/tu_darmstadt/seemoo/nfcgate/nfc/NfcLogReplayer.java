@@ -1,6 +1,5 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -67,7 +66,7 @@ public class NfcLogReplayer {
             // next entry matches our type
             mReplayIndex++;
             // update date by creating new NfcComm from old one
-            return new NfcComm(next.isCard(), next.isInitial(), next.getData());
+            return new NfcComm(next.isCard(), next.isInitial(), next.getDataString());
         }
 
         // either wrong request or next log entry does not match our type: wait
@@ -85,7 +84,7 @@ public class NfcLogReplayer {
 
         // if the other side sent a request exactly matching our expectations, use index-based resp
         if (request != null && next != null && next.isCard() == request.isCard()
-                && Arrays.equals(next.getData(), request.getData())) {
+                && next.getDataString().equals(request.getDataString())) {
             return getIndexBasedResponse(request);
         }
         // if we just need our next communication, use index-based resp
@@ -131,11 +130,11 @@ public class NfcLogReplayer {
         Map<Integer, Integer> result = new HashMap<>();
 
         for (int i = 0; i < mReplayLog.size(); i++) {
-            NfcComm entry = mReplayLog.get(i).getNfcComm();
+            NfcCommEntry entry = mReplayLog.get(i);
 
-            // calc only for other side
+            // calc only for other side, checked without parsing the entry
             if (entry.isCard() == mReader)
-                result.put(i, calcScore(entry, request));
+                result.put(i, calcScore(entry.getNfcComm(), request));
         }
 
         return result;
@@ -154,15 +153,15 @@ public class NfcLogReplayer {
      * Matches length and content of given data. Higher score is better
      */
     private int calcScore(NfcComm entry, NfcComm request) {
-        byte[] bEntry = entry.getData(), bRequest = request.getData();
+        int entryLength = entry.getDataLength(), requestLength = request.getDataLength();
 
         // length based score: 10 for perfect match, one less for each absolute difference
-        int lScore = Math.max(0, 10 - (Math.abs(bEntry.length - bRequest.length)));
+        int lScore = Math.max(0, 10 - (Math.abs(entryLength - requestLength)));
 
         // prefix based score
         int pScore;
-        for (pScore = 0; pScore < Math.min(bEntry.length, bRequest.length); pScore++)
-            if (bEntry[pScore] != bRequest[pScore])
+        for (pScore = 0; pScore < Math.min(entryLength, requestLength); pScore++)
+            if (entry.getDataByte(pScore) != request.getDataByte(pScore))
                 break;
 
         // combine
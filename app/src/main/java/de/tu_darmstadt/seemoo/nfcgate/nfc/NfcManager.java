@@ -220,7 +220,7 @@ public class NfcManager implements NfcAdapter.ReaderCallback, NetworkManager.Cal
      * Handles card data by mode
      */
     public void handleData(boolean isForeign, NfcComm data) {
-        Log.v(TAG, "handleData foreign: " + isForeign + ", " + data.getData().length + " bytes");
+        Log.v(TAG, "handleData foreign: " + isForeign + ", " + data.getDataLength() + " bytes");
 
         if (mMode != null)
             mMode.onData(isForeign, data);
@@ -246,7 +246,7 @@ public class NfcManager implements NfcAdapter.ReaderCallback, NetworkManager.Cal
      * Applies own or foreign data
      */
     public void applyData(NfcComm data) {
-        Log.v(TAG, "applyData of " + data.getData().length + " bytes");
+        Log.v(TAG, "applyData of " + data.getDataLength() + " bytes");
 
         if (data.isInitial()) {
             // send configuration to service, also disables polling
@@ -287,7 +287,7 @@ public class NfcManager implements NfcAdapter.ReaderCallback, NetworkManager.Cal
         mActivity.runOnUiThread(() -> {
             // handle data on UI thread
             // use our timestamp instead of the remote
-            handleData(true, new NfcComm(data.isCard(), data.isInitial(), data.getData()));
+            handleData(true, new NfcComm(data.isCard(), data.isInitial(), data.getDataString()));
         });
     }
 
@@ -1,10 +1,16 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import de.tu_darmstadt.seemoo.nfcgate.BuildConfig;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors.BRCMDetector;
+import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors.ConfigScanner;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors.INfcChipDetector;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors.NXPDetector;
 import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors.NXPOppoDetector;
@@ -16,12 +22,41 @@ public class NfcChip {
     // Prevent creating this class, it only has static methods.
     private NfcChip() {}
 
+    // detection result, reused until the system build or the app changes
+    private static final String PREF_FINGERPRINT = "fingerprint";
+    private static final String PREF_VERSION_CODE = "versionCode";
+    private static final String PREF_CHIP_NAME = "chipName";
+    private static final String PREF_CONFIDENCE = "confidence";
+    private static NfcChipGuess mCached = null;
+
     /**
-     * Detects the NFC chip on this device
+     * Detects the NFC chip on this device.
+     * A detected chip is persisted and only detected again after a system or app update.
      *
      * @return The name of the chip or null
      */
-    public static String detect() {
+    public static synchronized String detect(Context context) {
+        if (mCached == null)
+            mCached = loadCached(context);
+
+        if (mCached == null) {
+            mCached = detectBest();
+            // a miss is retried in the next process, a fixed detector may find the chip
+            if (formatGuess(mCached) != null)
+                storeCached(context, mCached);
+        }
+
+        return formatGuess(mCached);
+    }
+
+    private static String formatGuess(NfcChipGuess guess) {
+        if (guess.chipName != null && !guess.chipName.isEmpty())
+            return guess.chipName;
+
+        return null;
+    }
+
+    private static NfcChipGuess detectBest() {
         NfcChipGuess best = new NfcChipGuess();
 
         // search guesses in order
@@ -30,10 +65,32 @@ public class NfcChip {
                 best = guess;
         }
 
-        if (best.chipName != null && !best.chipName.isEmpty())
-            return best.chipName;
+        return best;
+    }
 
-        return null;
+    private static SharedPreferences getPreferences(Context context) {
+        // dedicated file keeps the cache out of the application settings
+        return context.getSharedPreferences("nfc_chip", Context.MODE_PRIVATE);
+    }
+
+    private static NfcChipGuess loadCached(Context context) {
+        SharedPreferences prefs = getPreferences(context);
+
+        // the chip can only change with a system update, detectors only with an app update
+        if (!Build.FINGERPRINT.equals(prefs.getString(PREF_FINGERPRINT, null))
+                || prefs.getInt(PREF_VERSION_CODE, -1) != BuildConfig.VERSION_CODE)
+            return null;
+
+        return new NfcChipGuess(prefs.getString(PREF_CHIP_NAME, null), prefs.getFloat(PREF_CONFIDENCE, 0));
+    }
+
+    private static void storeCached(Context context, NfcChipGuess guess) {
+        getPreferences(context).edit()
+                .putString(PREF_FINGERPRINT, Build.FINGERPRINT)
+                .putInt(PREF_VERSION_CODE, BuildConfig.VERSION_CODE)
+                .putString(PREF_CHIP_NAME, guess.chipName)
+                .putFloat(PREF_CONFIDENCE, guess.confidence)
+                .apply();
     }
 
     private static List<NfcChipGuess> collectGuesses() {
@@ -46,8 +103,14 @@ public class NfcChip {
                 new STDetector()
         );
 
+        // every config file is read once for all detectors
+        ConfigScanner scanner = new ConfigScanner();
+        for (INfcChipDetector detector : detectors)
+            detector.register(scanner);
+        scanner.scan();
+
         for (INfcChipDetector detector : detectors)
-            result.addAll(detector.tryDetect());
+            result.addAll(detector.collectGuesses());
 
         return result;
     }
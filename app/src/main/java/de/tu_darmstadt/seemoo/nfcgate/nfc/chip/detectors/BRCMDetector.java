@@ -1,7 +1,5 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
 
-import android.util.Pair;
-
 import java.util.Arrays;
 import java.util.List;
 
@@ -20,19 +18,15 @@ public class BRCMDetector extends BaseConfigLineDetector {
     }
 
     @Override
-    protected boolean onLine(String line, NfcChipGuess guess) {
-        Pair<String, String> keyVal = splitConfigLine(line);
-
-        if (keyVal != null) {
-            if ("TRANSPORT_DRIVER".equals(keyVal.first)) {
-                // the existence of this device node confirms this is (or is not) the correct config
-                if (!fileExists(keyVal.second) || "/dev/null".equals(keyVal.second))
-                    return false;
-
-                guess.confidence = 0.9f;
-                if (guess.chipName == null)
-                    guess.chipName = "Broadcom Device " + formatBRCMDeviceNode(keyVal.second);
-            }
+    protected boolean onLine(String key, String value, NfcChipGuess guess) {
+        if ("TRANSPORT_DRIVER".equals(key)) {
+            // the existence of this device node confirms this is (or is not) the correct config
+            if (!fileExists(value) || "/dev/null".equals(value))
+                return false;
+
+            guess.confidence = 0.9f;
+            if (guess.chipName == null)
+                guess.chipName = "Broadcom Device " + formatBRCMDeviceNode(value);
         }
 
         return true;
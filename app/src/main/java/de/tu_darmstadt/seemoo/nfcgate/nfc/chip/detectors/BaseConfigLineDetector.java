@@ -1,7 +1,6 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
 
 import android.util.Log;
-import android.util.Pair;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -26,17 +25,39 @@ public abstract class BaseConfigLineDetector implements INfcChipDetector {
             "/etc/",
     };
 
+    // guesses of the registered config files, filled by the scanner
+    private final List<ConfigGuess> mGuesses = new ArrayList<>();
+
+    private static class ConfigGuess {
+        final String path;
+        final NfcChipGuess guess = new NfcChipGuess();
+        ConfigScanner.Subscription subscription;
+
+        ConfigGuess(String path) {
+            this.path = path;
+        }
+    }
+
     @Override
-    public List<NfcChipGuess> tryDetect() {
-        List<NfcChipGuess> result = new ArrayList<>();
+    public void register(ConfigScanner scanner) {
+        mGuesses.clear();
 
         for (String configFile : findConfigs(getConfigFilenames())) {
-            NfcChipGuess guess = readConfig(configFile);
+            final ConfigGuess config = new ConfigGuess(configFile);
+            config.subscription = scanner.subscribe(configFile, (key, value) -> onLine(key, value, config.guess));
+            mGuesses.add(config);
+        }
+    }
 
+    @Override
+    public List<NfcChipGuess> collectGuesses() {
+        List<NfcChipGuess> result = new ArrayList<>();
+
+        for (ConfigGuess config : mGuesses) {
             // ignore confirmed misses
-            if (guess != null) {
-                Log.d("NFCCONFIG", String.format("Guess %s from %s", guess, configFile));
-                result.add(guess);
+            if (config.subscription.isAccepted()) {
+                Log.d("NFCCONFIG", String.format("Guess %s from %s", config.guess, config.path));
+                result.add(config.guess);
             }
         }
 
@@ -64,20 +85,6 @@ public abstract class BaseConfigLineDetector implements INfcChipDetector {
         return result;
     }
 
-    /**
-     * Reads given config, triggers onLine for every line in the config
-     *
-     * @return A guess at the NFC chip name or null
-     */
-    protected NfcChipGuess readConfig(String path) {
-        final NfcChipGuess result = new NfcChipGuess();
-
-        if (!readFileLines(path, line -> onLine(line, result)))
-            return null;
-
-        return result;
-    }
-
     protected interface ILineProcessor {
         boolean processLine(String line);
     }
@@ -104,22 +111,6 @@ public abstract class BaseConfigLineDetector implements INfcChipDetector {
         return true;
     }
 
-    /**
-     * Splits config line, e.g. "a=b", "a =\"b\"", " a =  b  "
-     * into (a, b) pair
-     *
-     * @return Pair of key, value or null if line is not in the expected format
-     */
-    protected static Pair<String, String> splitConfigLine(String line) {
-        String[] parts = line.split("=", 2);
-
-        if (parts.length == 2)
-            return new Pair<>(parts[0].trim(),
-                    parts[1].trim().replaceAll("(^\")|(\"$)", ""));
-
-        return null;
-    }
-
     /**
      * Checks if file exists
      */
@@ -131,5 +122,11 @@ public abstract class BaseConfigLineDetector implements INfcChipDetector {
     protected List<String> getConfigDirs() {
         return Arrays.asList(configDirs);
     }
-    protected abstract boolean onLine(String line, NfcChipGuess guess);
+
+    /**
+     * Processes one key-value line of a registered config file
+     *
+     * @return False if the line confirms this is not the correct config
+     */
+    protected abstract boolean onLine(String key, String value, NfcChipGuess guess);
 }
@@ -0,0 +1,89 @@
+package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared scanner for line-based configuration files.
+ * Every file is read and tokenized once, its lines are dispatched to all detectors interested in it.
+ */
+public class ConfigScanner {
+    // "a=b", "a =\"b\"", " a =  b  " with optional quotes around the value
+    private static final Pattern CONFIG_LINE = Pattern.compile("^\\s*([^=]*?)\\s*=\\s*\"?(.*?)\"?\\s*$");
+
+    public interface IKeyValueProcessor {
+        boolean processKeyValue(String key, String value);
+    }
+
+    /**
+     * Interest of one detector in one file
+     */
+    public static class Subscription {
+        private final IKeyValueProcessor mProcessor;
+        private boolean mAccepted = true;
+
+        Subscription(IKeyValueProcessor processor) {
+            mProcessor = processor;
+        }
+
+        /**
+         * @return False if the detector rejected any line of the file
+         */
+        public boolean isAccepted() {
+            return mAccepted;
+        }
+    }
+
+    private final Map<String, List<Subscription>> mFiles = new LinkedHashMap<>();
+    private final Matcher mMatcher = CONFIG_LINE.matcher("");
+
+    /**
+     * Registers a processor for every key-value line in the file at path.
+     * Return false from processing a line to indicate an error, the file is then skipped for this processor
+     */
+    public Subscription subscribe(String path, IKeyValueProcessor processor) {
+        Subscription subscription = new Subscription(processor);
+
+        List<Subscription> subscriptions = mFiles.get(path);
+        if (subscriptions == null) {
+            subscriptions = new ArrayList<>();
+            mFiles.put(path, subscriptions);
+        }
+        subscriptions.add(subscription);
+
+        return subscription;
+    }
+
+    /**
+     * Reads all subscribed files once, dispatching their lines to the subscriptions
+     */
+    public void scan() {
+        for (Map.Entry<String, List<Subscription>> file : mFiles.entrySet()) {
+            final List<Subscription> subscriptions = file.getValue();
+
+            BaseConfigLineDetector.readFileLines(file.getKey(), line -> {
+                if (!mMatcher.reset(line).matches())
+                    return true;
+
+                String key = mMatcher.group(1);
+                String value = mMatcher.group(2);
+                boolean pending = false;
+
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.mAccepted)
+                        subscription.mAccepted = subscription.mProcessor.processKeyValue(key, value);
+                    pending |= subscription.mAccepted;
+                }
+
+                // stop reading once every subscriber rejected the file
+                return pending;
+            });
+        }
+
+        mFiles.clear();
+    }
+}
@@ -8,5 +8,13 @@ import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.NfcChipGuess;
  * Common interface for all NFCC detectors
  */
 public interface INfcChipDetector {
-    List<NfcChipGuess> tryDetect();
+    /**
+     * Registers the config files to read with the shared scanner
+     */
+    void register(ConfigScanner scanner);
+
+    /**
+     * Collects the guesses after the scanner has run
+     */
+    List<NfcChipGuess> collectGuesses();
 }
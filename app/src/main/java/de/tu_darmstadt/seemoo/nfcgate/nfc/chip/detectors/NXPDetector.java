@@ -1,7 +1,5 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
 
-import android.util.Pair;
-
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -65,23 +63,19 @@ public class NXPDetector extends BaseConfigLineDetector {
     }
 
     @Override
-    protected boolean onLine(String line, NfcChipGuess guess) {
-        Pair<String, String> keyVal = splitConfigLine(line);
-
-        if (keyVal != null) {
-            if ("NXP_NFC_DEV_NODE".equals(keyVal.first)) {
-                // existence of this device node confirms this is (or is not) the correct config
-                if (!fileExists(keyVal.second) || "/dev/null".equals(keyVal.second))
-                    return false;
-
-                guess.improveConfidence(0.9f);
-                if (guess.chipName == null)
-                    guess.chipName = "NXP Device " + formatNXPDeviceNode(keyVal.second);
-            }
-            else if (NfcChipKeywords.contains(keyVal.first)) {
-                guess.improveConfidence(0.2f);
-                guess.chipName = "NXP " + resolveNXPChipCode(keyVal.second);
-            }
+    protected boolean onLine(String key, String value, NfcChipGuess guess) {
+        if ("NXP_NFC_DEV_NODE".equals(key)) {
+            // existence of this device node confirms this is (or is not) the correct config
+            if (!fileExists(value) || "/dev/null".equals(value))
+                return false;
+
+            guess.improveConfidence(0.9f);
+            if (guess.chipName == null)
+                guess.chipName = "NXP Device " + formatNXPDeviceNode(value);
+        }
+        else if (NfcChipKeywords.contains(key)) {
+            guess.improveConfidence(0.2f);
+            guess.chipName = "NXP " + resolveNXPChipCode(value);
         }
 
         return true;
@@ -188,8 +188,8 @@ public class NXPOppoDetector extends NXPDetector {
     }
 
     @Override
-    public List<NfcChipGuess> tryDetect() {
-        List<NfcChipGuess> result = super.tryDetect();
+    public List<NfcChipGuess> collectGuesses() {
+        List<NfcChipGuess> result = super.collectGuesses();
 
         // add our guess based on the firmware file if the ref file exists
         String firmwareSuffix = getRefSuffix(getFwRefPath());
@@ -1,7 +1,5 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
 
-import android.util.Pair;
-
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -16,31 +14,29 @@ import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.NfcChipGuess;
  * so we use information from the firmware filename or fall back to the transport driver.
  */
 public class STDetector extends BaseConfigLineDetector {
+    private static final Pattern FIRMWARE_NAME = Pattern.compile("^.*/(\\w+)_");
+
     @Override
     protected List<String> getConfigFilenames() {
         return Arrays.asList("libnfc-hal-st.conf");
     }
 
     @Override
-    protected boolean onLine(String line, NfcChipGuess guess) {
-        Pair<String, String> keyVal = splitConfigLine(line);
-
-        if (keyVal != null) {
-            if ("NCI_HAL_MODULE".equals(keyVal.first)) {
-                String device = "/dev/" + keyVal.second.replace("nfc_nci.", "");
-                // existence of this device node confirms this is (or is not) the correct config
-                if (!fileExists(device) || "/dev/null".equals(device))
-                    return false;
-
-                guess.confidence = 0.9f;
-                if (guess.chipName == null)
-                    guess.chipName = "ST Device " + formatSTDeviceNode(keyVal.second);
-            }
-            else if ("STNFC_FW_BIN_NAME".equals(keyVal.first)
-                    || "STNFC_FW_CONF_NAME".equals(keyVal.first)) {
-                guess.improveConfidence(0.2f);
-                guess.chipName = "NXP Device " + formatFirmwareName(keyVal.second);
-            }
+    protected boolean onLine(String key, String value, NfcChipGuess guess) {
+        if ("NCI_HAL_MODULE".equals(key)) {
+            String device = "/dev/" + value.replace("nfc_nci.", "");
+            // existence of this device node confirms this is (or is not) the correct config
+            if (!fileExists(device) || "/dev/null".equals(device))
+                return false;
+
+            guess.confidence = 0.9f;
+            if (guess.chipName == null)
+                guess.chipName = "ST Device " + formatSTDeviceNode(value);
+        }
+        else if ("STNFC_FW_BIN_NAME".equals(key)
+                || "STNFC_FW_CONF_NAME".equals(key)) {
+            guess.improveConfidence(0.2f);
+            guess.chipName = "NXP Device " + formatFirmwareName(value);
         }
 
         return true;
@@ -51,8 +47,7 @@ public class STDetector extends BaseConfigLineDetector {
     }
 
     private static String formatFirmwareName(String firmware) {
-        Pattern pattern = Pattern.compile("^.*/(\\w+)_");
-        Matcher matcher = pattern.matcher(firmware);
+        Matcher matcher = FIRMWARE_NAME.matcher(firmware);
 
         return matcher.lookingAt() && matcher.groupCount() > 0 ?
                 matcher.group(1).toUpperCase() : null;
@@ -1,7 +1,5 @@
 package de.tu_darmstadt.seemoo.nfcgate.nfc.chip.detectors;
 
-import android.util.Pair;
-
 import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -16,38 +14,35 @@ import de.tu_darmstadt.seemoo.nfcgate.nfc.chip.NfcChipGuess;
  * so we use information from the firmware filename.
  */
 public class SamsungDetector extends BaseConfigLineDetector {
+    private static final Pattern FIRMWARE_NAME = Pattern.compile("^\\w+_(\\w+)_");
+
     @Override
     protected List<String> getConfigFilenames() {
         return Arrays.asList("libnfc-sec-vendor.conf");
     }
 
     @Override
-    protected boolean onLine(String line, NfcChipGuess guess) {
-        Pair<String, String> keyVal = splitConfigLine(line);
-
-        if (keyVal != null) {
-            if ("TRANS_DRIVER".equals(keyVal.first)) {
-                // existence of this device node confirms this is (or is not) the correct config
-                if (!fileExists(keyVal.second) || "/dev/null".equals(keyVal.second))
-                    return false;
-
-                guess.confidence = 0.9f;
-                if (guess.chipName == null)
-                    guess.chipName = "Samsung Unknown";
-            }
-            else if ("FW_FILE_NAME".equals(keyVal.first)
-                    || "RF_FILE_NAME".equals(keyVal.first)) {
-                guess.improveConfidence(0.2f);
-                guess.chipName = "Samsung " + formatFirmwareName(keyVal.second);
-            }
+    protected boolean onLine(String key, String value, NfcChipGuess guess) {
+        if ("TRANS_DRIVER".equals(key)) {
+            // existence of this device node confirms this is (or is not) the correct config
+            if (!fileExists(value) || "/dev/null".equals(value))
+                return false;
+
+            guess.confidence = 0.9f;
+            if (guess.chipName == null)
+                guess.chipName = "Samsung Unknown";
+        }
+        else if ("FW_FILE_NAME".equals(key)
+                || "RF_FILE_NAME".equals(key)) {
+            guess.improveConfidence(0.2f);
+            guess.chipName = "Samsung " + formatFirmwareName(value);
         }
 
         return true;
     }
 
     private static String formatFirmwareName(String firmware) {
-        Pattern pattern = Pattern.compile("^\\w+_(\\w+)_");
-        Matcher matcher = pattern.matcher(firmware);
+        Matcher matcher = FIRMWARE_NAME.matcher(firmware);
 
         return matcher.lookingAt() && matcher.groupCount() > 0 ?
                 matcher.group(1).toUpperCase() : null;
@@ -2,7 +2,6 @@ package de.tu_darmstadt.seemoo.nfcgate.nfc.config;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;
 
 /**
  * Represents a NCI config stream.
@@ -10,6 +9,8 @@ import java.util.Arrays;
  */
 public class ConfigBuilder {
     private final List<ConfigOption> mOptions = new ArrayList<>();
+    // length of the built stream
+    private int mLength = 0;
 
     public ConfigBuilder() { }
 
@@ -21,15 +22,16 @@ public class ConfigBuilder {
         if (data == null) return;
         if (data.length > 255)
             throw new IllegalArgumentException("Option data too large (>255)");
-        mOptions.add(new ConfigOption(ID, data));
+        add(new ConfigOption(ID, data));
     }
 
     public void add(OptionType ID, byte data) {
-        mOptions.add(new ConfigOption(ID, data));
+        add(new ConfigOption(ID, data));
     }
 
     public void add(ConfigOption option) {
         mOptions.add(option);
+        mLength += option.len() + 2;
     }
 
     public List<ConfigOption> getOptions() {
@@ -38,42 +40,15 @@ public class ConfigBuilder {
 
     private void parse(byte[] config) {
         mOptions.clear();
-        if (config == null) return;
-
-        int index = 0;
-        final int total = config.length;
-
-        // treat type/length as unsigned and bounds-check
-        while (index + 2 <= total) {
-            int type = config[index] & 0xFF;
-            int length = config[index + 1] & 0xFF;
-
-            if (length == 0) {
-                // zero-length is allowed but still consumes 2 bytes
-                add(OptionType.fromType((byte) type), new byte[0]);
-                index += 2;
-                continue;
-            }
-
-            if (index + 2 + length > total) {
-                // truncated/malformed stream: stop parsing to avoid exceptions
-                break;
-            }
-
-            byte[] data = Arrays.copyOfRange(config, index + 2, index + 2 + length);
-            add(OptionType.fromType((byte) type), data);
-            index += length + 2;
-        }
+        mLength = 0;
+
+        ConfigView view = new ConfigView(config);
+        for (int i = 0; i < view.size(); i++)
+            add(view.getOptionType(i), view.getData(i));
     }
 
     public byte[] build() {
-        int length = 0;
-
-        for (ConfigOption option : mOptions) {
-            length += option.len() + 2;
-        }
-
-        byte[] data = new byte[length];
+        byte[] data = new byte[mLength];
         int offset = 0;
 
         for (ConfigOption option : mOptions) {
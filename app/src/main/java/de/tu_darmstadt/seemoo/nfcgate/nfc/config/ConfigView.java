@@ -0,0 +1,128 @@
+package de.tu_darmstadt.seemoo.nfcgate.nfc.config;
+
+import java.util.Arrays;
+
+/**
+ * Read-only view of a NCI config stream.
+ * Only indexes the option offsets, type and data are read from the original array without copies.
+ */
+public class ConfigView {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final byte[] mConfig;
+    // offset of the type byte of every option
+    private final int[] mOffsets;
+    private final int mCount;
+
+    public ConfigView(byte[] config) {
+        mConfig = config == null ? new byte[0] : config;
+
+        // every option takes at least 2 bytes
+        int[] offsets = new int[mConfig.length / 2];
+        int count = 0;
+        int index = 0;
+
+        // treat type/length as unsigned and bounds-check
+        while (index + 2 <= mConfig.length) {
+            int length = mConfig[index + 1] & 0xFF;
+
+            // truncated/malformed stream: stop parsing to avoid exceptions
+            if (index + 2 + length > mConfig.length)
+                break;
+
+            offsets[count++] = index;
+            index += length + 2;
+        }
+
+        mOffsets = offsets;
+        mCount = count;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * @return The raw type of the option at index
+     */
+    public byte getType(int index) {
+        return mConfig[mOffsets[index]];
+    }
+
+    /**
+     * @return The type of the option at index or null if unknown
+     */
+    public OptionType getOptionType(int index) {
+        return OptionType.fromType(getType(index));
+    }
+
+    public int getLength(int index) {
+        return mConfig[mOffsets[index] + 1] & 0xFF;
+    }
+
+    /**
+     * @return Offset of the option data at index in the array returned by getArray
+     */
+    public int getDataOffset(int index) {
+        return mOffsets[index] + 2;
+    }
+
+    public byte[] getArray() {
+        return mConfig;
+    }
+
+    /**
+     * @return Index of the first option of this type or -1 if not present
+     */
+    public int find(OptionType type) {
+        for (int i = 0; i < mCount; i++)
+            if (getType(i) == type.getID())
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * @return A copy of the option data at index
+     */
+    public byte[] getData(int index) {
+        int offset = getDataOffset(index);
+        return Arrays.copyOfRange(mConfig, offset, offset + getLength(index));
+    }
+
+    /**
+     * Formats all options like ConfigOption.toString, separated by newlines
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        for (int i = 0; i < mCount; i++) {
+            if (i > 0)
+                result.append("\n");
+
+            OptionType type = getOptionType(i);
+            int length = getLength(i);
+
+            result.append("Type: ");
+            if (type != null)
+                result.append(type);
+            else
+                appendHex(result.append("0x"), mConfig, mOffsets[i], 1);
+
+            if (length > 1)
+                result.append(" (").append(length).append(")");
+
+            appendHex(result.append(", Value: 0x"), mConfig, getDataOffset(i), length);
+        }
+
+        return result.toString();
+    }
+
+    private static void appendHex(StringBuilder builder, byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int v = bytes[i] & 0xFF;
+            builder.append(HEX[v >>> 4]).append(HEX[v & 0x0F]);
+        }
+    }
+}
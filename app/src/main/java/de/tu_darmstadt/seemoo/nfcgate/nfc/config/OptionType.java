@@ -56,11 +56,14 @@ public enum OptionType {
         return (byte)value;
     }
 
-    public static OptionType fromType(byte type) {
+    // lookup table indexed by the unsigned option type
+    private static final OptionType[] BY_TYPE = new OptionType[256];
+    static {
         for (OptionType optionType : OptionType.values())
-            if (optionType.getID() == type)
-                return optionType;
+            BY_TYPE[optionType.value] = optionType;
+    }
 
-        return null;
+    public static OptionType fromType(byte type) {
+        return BY_TYPE[type & 0xFF];
     }
 }
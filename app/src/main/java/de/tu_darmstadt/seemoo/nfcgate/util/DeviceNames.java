@@ -1,24 +1,27 @@
 package de.tu_darmstadt.seemoo.nfcgate.util;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.os.Build;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-
-import de.tu_darmstadt.seemoo.nfcgate.R;
+import java.util.Locale;
 
 public final class DeviceNames {
-    private final String mJsonByDevice;
+    // binary index compiled from by_device.json by the compileDeviceIndex gradle task
+    private static final String INDEX_ASSET = "by_device.idx";
+    private static final int INDEX_MAGIC = 0x4E474449;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_LEN = 12;
+
+    private final ByteBuffer mIndex;
 
     public DeviceNames(Context context) {
-        mJsonByDevice = loadJsonByDevice(context);
+        mIndex = loadIndex(context);
     }
 
     public String formatCurrentDeviceName() {
@@ -34,90 +37,95 @@ public final class DeviceNames {
     }
 
     public String getMarketName(String deviceName, String modelName) {
-        JSONArray devices = findDevices(deviceName);
-        if (devices != null)
-            return findMarketName(devices, modelName);
+        if (mIndex == null)
+            return null;
+
+        int record = findDevices(deviceName);
+        if (record >= 0)
+            return findMarketName(record, modelName);
 
         return null;
     }
 
-    private String loadJsonByDevice(Context context) {
-        // read the full resource as a string
-        try (InputStream is = context.getResources().openRawResource(R.raw.by_device)) {
-            return new String(FileUtils.readAllBytes(is), StandardCharsets.UTF_8);
+    private static ByteBuffer loadIndex(Context context) {
+        // asset is stored uncompressed, so it can be mapped directly from the APK
+        try (AssetFileDescriptor fd = context.getAssets().openFd(INDEX_ASSET);
+             FileInputStream is = fd.createInputStream();
+             FileChannel channel = is.getChannel()) {
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+
+            // reject unknown index formats
+            if (index.capacity() >= INDEX_HEADER_LEN && index.getInt(0) == INDEX_MAGIC && index.getInt(4) == INDEX_VERSION)
+                return index;
         } catch (IOException ignored) { }
 
-        return "";
+        return null;
     }
 
-    /// look for device entries matching the device name in the map (multiple matches possible)
-    private JSONArray findDevices(String searchDeviceName) {
-        JSONTokener tokener = new JSONTokener(mJsonByDevice);
-
-        /*
-         * Traverse huge JSON object efficiently by only loading small
-         * chunks at a time into memory.
-         *
-         * Example snippet from the JSON object:
-         * "bullhead": [
-         *  {
-         *   "brand": "Blackshark",
-         *   "name": "Shark 1S",
-         *   "model": "AWM-A0"
-         *  },
-         *  {
-         *   "brand": "LGE",
-         *   "name": "Nexus 5X",
-         *   "model": "Nexus 5X"
-         *  }
-         * ],
-         */
-
-        try {
-            // enter the root JSON object
-            tokener.skipPast("{");
-            // while there are devices in the map
-            while (tokener.more()) {
-                // parse the object key, a quoted string (e.g. "bullhead")
-                String deviceName = (String) tokener.nextValue();
-                // skip to object value
-                tokener.skipPast(":");
-                // parse the object value, a JSON array
-                JSONArray devices = (JSONArray) tokener.nextValue();
-                // skip to next object key (or exhaust the input)
-                tokener.skipPast(",");
-
-                // if the object key matches the device name, return the object value
-                if (searchDeviceName.equalsIgnoreCase(deviceName))
-                    return devices;
-            }
+    /// binary search the device record matching the device name, returns its offset or -1
+    private int findDevices(String searchDeviceName) {
+        // codenames are stored lower case and sorted by their unsigned UTF-8 bytes
+        byte[] search = searchDeviceName.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = mIndex.getInt(8) - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = mIndex.getInt(INDEX_HEADER_LEN + 4 * mid);
+            int cmp = compareKey(record, search);
+
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return record;
         }
-        catch (JSONException ignored) { }
 
-        // null on error or not found
-        return null;
+        return -1;
     }
 
-    /// find one device market name matching the model in device entries returned by findDevices
-    private String findMarketName(JSONArray devices, String searchModel) {
-        try {
-            for (int i = 0; i < devices.length(); i++) {
-                JSONObject device = devices.getJSONObject(i);
-
-                // skip malformed device entries
-                if (device.has("name") && device.has("model")) {
-                    String name = device.getString("name");
-                    String model = device.getString("model");
-
-                    // if the model matches and the market name is valid, return this market name
-                    if (searchModel.equalsIgnoreCase(model) && !name.isBlank())
-                        return name;
-                }
-            }
+    /// compare the codename of the record at offset with the search key without decoding it
+    private int compareKey(int record, byte[] search) {
+        int length = mIndex.getShort(record) & 0xFFFF;
+        int common = Math.min(length, search.length);
+
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(mIndex.get(record + 2 + i) & 0xFF, search[i] & 0xFF);
+            if (cmp != 0)
+                return cmp;
         }
-        catch (JSONException ignored) { }
 
-        // null on error or not found
+        return Integer.compare(length, search.length);
+    }
+
+    /// find one device market name matching the model in the device record returned by findDevices
+    private String findMarketName(int record, String searchModel) {
+        // skip the codename
+        int position = record + 2 + (mIndex.getShort(record) & 0xFFFF);
+        int count = mIndex.getShort(position) & 0xFFFF;
+        position += 2;
+
+        for (int i = 0; i < count; i++) {
+            String model = readString(position);
+            position += 2 + (mIndex.getShort(position) & 0xFFFF);
+            String name = readString(position);
+            position += 2 + (mIndex.getShort(position) & 0xFFFF);
+
+            // entries without market name are already dropped at build time
+            if (searchModel.equalsIgnoreCase(model))
+                return name;
+        }
+
+        // null if not found
         return null;
     }
+
+    private String readString(int position) {
+        byte[] bytes = new byte[mIndex.getShort(position) & 0xFFFF];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = mIndex.get(position + 2 + i);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 }
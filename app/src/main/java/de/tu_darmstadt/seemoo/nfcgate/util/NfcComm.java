@@ -3,6 +3,8 @@ package de.tu_darmstadt.seemoo.nfcgate.util;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import java.nio.ByteBuffer;
+
 import de.tu_darmstadt.seemoo.nfcgate.network.c2c.C2C.NFCData;
 
 /**
@@ -10,7 +12,9 @@ import de.tu_darmstadt.seemoo.nfcgate.network.c2c.C2C.NFCData;
  * It is used to pass information to Sinks, including metadata like the source of the bytes.
  */
 public class NfcComm {
-    private NFCData mData;
+    // parsed data, decoded lazily from mSerialized on first access
+    private volatile NFCData mData;
+    private final byte[] mSerialized;
 
     /**
      * Instantiate a NfcComm object for regular NFC Traffic
@@ -23,65 +27,121 @@ public class NfcComm {
      * Instantiate a NfcComm object for regular NFC Traffic
      */
     public NfcComm(boolean fromCard, boolean isInitial, byte[] data, long timestamp) {
+        this(fromCard, isInitial, ByteString.copyFrom(data), timestamp);
+    }
+
+    /**
+     * Instantiate a NfcComm object sharing existing immutable data
+     */
+    public NfcComm(boolean fromCard, boolean isInitial, ByteString data) {
+        this(fromCard, isInitial, data, System.currentTimeMillis());
+    }
+
+    /**
+     * Instantiate a NfcComm object sharing existing immutable data
+     */
+    public NfcComm(boolean fromCard, boolean isInitial, ByteString data, long timestamp) {
         mData = NFCData.newBuilder()
                 .setDataSource(fromCard ? NFCData.DataSource.CARD : NFCData.DataSource.READER)
                 .setDataType(isInitial ? NFCData.DataType.INITIAL : NFCData.DataType.CONTINUATION)
                 .setTimestamp(timestamp)
-                .setData(ByteString.copyFrom(data))
+                .setData(data)
                 .build();
+        mSerialized = null;
     }
 
     /**
-     * Instantiate a NfcComm object from serialized data
+     * Instantiate a NfcComm object from serialized data.
+     * Parsing is deferred until the first field access.
      */
     public NfcComm(byte[] data) {
-        try {
-            mData = NFCData.parseFrom(data);
-        } catch (InvalidProtocolBufferException e) {
-            e.printStackTrace();
+        mSerialized = data;
+    }
+
+    private NFCData data() {
+        NFCData result = mData;
+        if (result == null) {
+            try {
+                result = NFCData.parseFrom(mSerialized);
+            } catch (InvalidProtocolBufferException e) {
+                e.printStackTrace();
+                result = NFCData.getDefaultInstance();
+            }
+            mData = result;
         }
+        return result;
     }
 
     /**
      * True if initial data, false on continuation
      */
     public boolean isInitial() {
-        return mData.getDataType() == NFCData.DataType.INITIAL;
+        return data().getDataType() == NFCData.DataType.INITIAL;
     }
 
     /**
      * True if card source, false on reader source
      */
     public boolean isCard() {
-        return mData.getDataSource() == NFCData.DataSource.CARD;
+        return data().getDataSource() == NFCData.DataSource.CARD;
     }
 
     /**
      * Unix timestamp in millis
      */
     public long getTimestamp() {
-        return mData.getTimestamp();
+        return data().getTimestamp();
     }
 
     /**
      * Returns the binary config stream if initial or APDU if continuation
      */
     public byte[] getData() {
-        return mData.getData().toByteArray();
+        return data().getData().toByteArray();
+    }
+
+    /**
+     * Returns the data without copying
+     */
+    public ByteString getDataString() {
+        return data().getData();
+    }
+
+    /**
+     * Returns a read-only view of the data without copying
+     */
+    public ByteBuffer getDataBuffer() {
+        return data().getData().asReadOnlyByteBuffer();
+    }
+
+    /**
+     * Returns the data length in bytes
+     */
+    public int getDataLength() {
+        return data().getData().size();
+    }
+
+    /**
+     * Returns the data byte at the given index
+     */
+    public byte getDataByte(int index) {
+        return data().getData().byteAt(index);
     }
 
     /**
      * Returns serialized NFCData
      */
     public byte[] toByteArray() {
-        return mData.toByteArray();
+        // avoid parsing and re-serializing unchanged data
+        return mSerialized != null ? mSerialized.clone() : mData.toByteArray();
     }
 
     @Override
     public String toString() {
-        String letter = isCard() ? "C" : "R";
-        String initial = isInitial() ? "(initial) " : "";
-        String data = Utils.bytesToHex(getData());
-        return String.format("%s: %s%s", letter, initial, data);
+        StringBuilder sb = new StringBuilder(isCard() ? "C: " : "R: ");
+        if (isInitial())
+            sb.append("(initial) ");
+
+        return sb.append(Utils.bytesToHex(getDataBuffer(), ':')).toString();
     }
 }
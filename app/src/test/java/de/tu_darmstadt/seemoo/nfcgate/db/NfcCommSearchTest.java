@@ -0,0 +1,79 @@
+package de.tu_darmstadt.seemoo.nfcgate.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NfcCommSearchTest {
+    private static final byte[] SELECT = { 0x00, (byte) 0xA4, 0x04, 0x00, 0x07, (byte) 0xA0, 0x00, 0x00, 0x00, 0x04, 0x10, 0x10, (byte) 0x90, 0x00 };
+
+    /**
+     * @return True if the query would match the tokenized payload
+     */
+    private static boolean matches(String query, byte[] data) {
+        List<String> tokens = Arrays.asList(NfcCommSearch.tokenize(data).split(" "));
+
+        // prefix query for short patterns
+        if (query.endsWith("*")) {
+            String prefix = query.substring(0, query.length() - 1);
+            for (String token : tokens)
+                if (token.startsWith(prefix))
+                    return true;
+            return false;
+        }
+
+        // phrase query, tokens at consecutive positions
+        List<String> phrase = Arrays.asList(query.substring(1, query.length() - 1).split(" "));
+        return Collections.indexOfSubList(tokens, phrase) >= 0;
+    }
+
+    @Test
+    public void tokenizeOverlappingGrams() {
+        assertEquals("", NfcCommSearch.tokenize(new byte[0]));
+        assertEquals("90", NfcCommSearch.tokenize(new byte[] { (byte) 0x90 }));
+        assertEquals("00A404 A40400 0400 00", NfcCommSearch.tokenize(new byte[] { 0x00, (byte) 0xA4, 0x04, 0x00 }));
+    }
+
+    @Test
+    public void matchQueryFormats() {
+        assertEquals("\"00A404 A40400\"", NfcCommSearch.toMatchQuery("00 A4 04 00"));
+        assertEquals("\"00A404 A40400\"", NfcCommSearch.toMatchQuery("00a40400"));
+        assertEquals("\"00A404\"", NfcCommSearch.toMatchQuery("00:a4:04"));
+        assertEquals("9000*", NfcCommSearch.toMatchQuery("90 00"));
+        assertEquals("A4*", NfcCommSearch.toMatchQuery("a4"));
+    }
+
+    @Test
+    public void matchQueryRejectsInvalid() {
+        assertNull(NfcCommSearch.toMatchQuery(""));
+        assertNull(NfcCommSearch.toMatchQuery(" : "));
+        assertNull(NfcCommSearch.toMatchQuery("A"));
+        assertNull(NfcCommSearch.toMatchQuery("00 A4 0"));
+        assertNull(NfcCommSearch.toMatchQuery("zz"));
+    }
+
+    @Test
+    public void everySubsequenceIsFound() {
+        for (int start = 0; start < SELECT.length; start++) {
+            for (int end = start + 1; end <= SELECT.length; end++) {
+                byte[] pattern = Arrays.copyOfRange(SELECT, start, end);
+                StringBuilder hex = new StringBuilder();
+                for (byte b : pattern)
+                    hex.append(String.format("%02x ", b));
+
+                assertTrue(hex.toString(), matches(NfcCommSearch.toMatchQuery(hex.toString()), SELECT));
+            }
+        }
+    }
+
+    @Test
+    public void otherPatternsAreNotFound() {
+        assertFalse(matches(NfcCommSearch.toMatchQuery("00 A4 04 01"), SELECT));
+        assertFalse(matches(NfcCommSearch.toMatchQuery("90 00 00"), SELECT));
+        assertFalse(matches(NfcCommSearch.toMatchQuery("6A 82"), SELECT));
+    }
+}
@@ -1,8 +1,19 @@
 package de.tu_darmstadt.seemoo.nfcgate.util;
 
+import java.nio.ByteBuffer;
+
 public class Utils {
 
     final private static char[] hexArray = "0123456789ABCDEF".toCharArray();
+    // two hex digits for every byte value, avoids shifting and masking per digit
+    final private static char[] hexPairs = new char[256 * 2];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            hexPairs[v * 2] = hexArray[v >>> 4];
+            hexPairs[v * 2 + 1] = hexArray[v & 0x0F];
+        }
+    }
 
     /**
      * Convert a byte-array to a hexadecimal String with bytes separated by ':'.
@@ -23,12 +34,27 @@ public class Utils {
      * @return Byte[] as hex-string
      */
     public static String bytesToHex(byte[] bytes, char separator) {
-        char[] hexChars = new char[bytes.length * 3];
+        return bytesToHex(ByteBuffer.wrap(bytes), separator);
+    }
+
+    /**
+     * Convert the remaining bytes of a buffer to a hexadecimal String without copying them.
+     *
+     * @param bytes Buffer to convert to String, its position is not modified
+     * @param separator Separator between bytes
+     * @return Bytes as hex-string
+     */
+    public static String bytesToHex(ByteBuffer bytes, char separator) {
+        final int start = bytes.position(), length = bytes.remaining();
+        if (length == 0)
+            return "";
+
+        char[] hexChars = new char[length * 3];
 
-        for (int j = 0; j < bytes.length; j++) {
-            int v = bytes[j] & 0xFF;
-            hexChars[j * 3] = hexArray[v >>> 4];
-            hexChars[j * 3 + 1] = hexArray[v & 0x0F];
+        for (int j = 0; j < length; j++) {
+            int v = bytes.get(start + j) & 0xFF;
+            hexChars[j * 3] = hexPairs[v * 2];
+            hexChars[j * 3 + 1] = hexPairs[v * 2 + 1];
             hexChars[j * 3 + 2] = separator;
         }
 
@@ -49,33 +75,53 @@ public class Utils {
      * @return Byte[] as hexdump string
      */
     public static String bytesToHexDump(byte[] bytes) {
-        int lines = bytes.length / 16 + 1;
-        int linePreamble = 5;
-        char[] hexChars = new char[bytes.length * 3 + lines * linePreamble];
-        for ( int j = 0, l = 0; j < bytes.length; j++ ) {
-            int v = bytes[j] & 0xFF;
-            int baseIx = l * linePreamble + j * 3;
+        char[] hexChars = new char[hexDumpLength(bytes.length)];
+        return new String(hexChars, 0, bytesToHexDump(ByteBuffer.wrap(bytes), hexChars));
+    }
+
+    /**
+     * Number of chars the hexdump of the given number of bytes requires.
+     */
+    public static int hexDumpLength(int length) {
+        if (length == 0)
+            return 0;
+
+        // each line holds 16 bytes and a 5 char preamble, lines are separated by newlines
+        int lines = (length + 15) / 16;
+        return length * 3 + lines * 5 - 1;
+    }
 
+    /**
+     * Write the multiline hexdump of the remaining bytes of a buffer into a preallocated char array.
+     *
+     * @param bytes Buffer to convert, its position is not modified
+     * @param hexChars Destination with at least hexDumpLength(bytes.remaining()) chars
+     * @return Number of chars written
+     */
+    public static int bytesToHexDump(ByteBuffer bytes, char[] hexChars) {
+        final int start = bytes.position(), length = bytes.remaining();
+        int p = 0;
+
+        for (int j = 0; j < length; j++) {
             // begin of new line
             if ((j % 16) == 0) {
                 // if not first line
-                if (j != 0) {
-                    l++;
-                    baseIx = l * linePreamble + j * 3;
-                    hexChars[baseIx] = '\n';
-                }
+                if (j != 0)
+                    hexChars[p++] = '\n';
 
                 // hex offset
-                hexChars[baseIx + 1] = hexArray[(j >>> 8) & 0x0F];
-                hexChars[baseIx + 2] = hexArray[(j >>> 4) & 0x0F];
-                hexChars[baseIx + 3] = hexArray[j & 0x0F];
-                hexChars[baseIx + 4] = ' ';
+                hexChars[p++] = hexArray[(j >>> 8) & 0x0F];
+                hexChars[p++] = hexArray[(j >>> 4) & 0x0F];
+                hexChars[p++] = hexArray[j & 0x0F];
+                hexChars[p++] = ' ';
             }
 
-            hexChars[baseIx + linePreamble] = ' ';
-            hexChars[baseIx + linePreamble + 1] = hexArray[v >>> 4];
-            hexChars[baseIx + linePreamble + 2] = hexArray[v & 0x0F];
+            int v = bytes.get(start + j) & 0xFF;
+            hexChars[p++] = ' ';
+            hexChars[p++] = hexPairs[v * 2];
+            hexChars[p++] = hexPairs[v * 2 + 1];
         }
-        return new String(hexChars, 1, hexChars.length - 1);
+
+        return p;
     }
 }